@@ -0,0 +1,149 @@
+import java.util.Arrays;
+
+public final class BitBoard {
+    private static final long NEIGHBORHOOD_MASK = 0b111_101_111L;
+    private final int nrows;
+    private final int ncols;
+    private final int words;
+    private final long[] mine;
+    private final long[] safe;
+    private final long[] unknown;
+    private final long[] number;
+    private final byte[] values;
+
+    public BitBoard(int nrows, int ncols) {
+        assert nrows > 0 && ncols > 0;
+        this.nrows = nrows;
+        this.ncols = ncols;
+        words = (ncols + 63) >>> 6;
+        mine = new long[nrows * words];
+        safe = new long[nrows * words];
+        unknown = new long[nrows * words];
+        number = new long[nrows * words];
+        values = new byte[nrows * ncols];
+    }
+
+    public BitBoard(char[][] map) {
+        this(map.length, map[0].length);
+        load(map);
+    }
+
+    public int get_nrows() {
+        return nrows;
+    }
+
+    public int get_ncols() {
+        return ncols;
+    }
+
+    public boolean has_shape(int nrows, int ncols) {
+        return this.nrows == nrows && this.ncols == ncols;
+    }
+
+    public void load(char[][] map) {
+        assert map.length == nrows && map[0].length == ncols;
+        Arrays.fill(mine, 0);
+        Arrays.fill(safe, 0);
+        Arrays.fill(unknown, 0);
+        Arrays.fill(number, 0);
+        for (int i = 0; i < nrows; ++i) {
+            for (int j = 0; j < ncols; ++j) {
+                char c = map[i][j];
+                values[i * ncols + j] = 0;
+                if (MinesweeperState.is_unfinished_operand(c)) {
+                    set_bit(unknown, i, j);
+                } else if (MinesweeperState.MINE_FLAG == c) {
+                    set_bit(mine, i, j);
+                } else if (MinesweeperState.is_number(c)) {
+                    set_bit(number, i, j);
+                    values[i * ncols + j] = (byte) MinesweeperState.to_number(c);
+                }
+            }
+        }
+    }
+
+    private void set_bit(long[] mask, int i, int j) {
+        mask[i * words + (j >>> 6)] |= 1L << j;
+    }
+
+    private void clear_bit(long[] mask, int i, int j) {
+        mask[i * words + (j >>> 6)] &= ~(1L << j);
+    }
+
+    private boolean get_bit(long[] mask, int i, int j) {
+        return (mask[i * words + (j >>> 6)] & (1L << j)) != 0;
+    }
+
+    public void set_mine(int i, int j) {
+        clear_bit(safe, i, j);
+        clear_bit(unknown, i, j);
+        set_bit(mine, i, j);
+    }
+
+    public void set_safe(int i, int j) {
+        clear_bit(mine, i, j);
+        clear_bit(unknown, i, j);
+        set_bit(safe, i, j);
+    }
+
+    public void set_unknown(int i, int j) {
+        clear_bit(mine, i, j);
+        clear_bit(safe, i, j);
+        set_bit(unknown, i, j);
+    }
+
+    public boolean is_mine(int i, int j) {
+        return get_bit(mine, i, j);
+    }
+
+    public boolean is_safe(int i, int j) {
+        return get_bit(safe, i, j);
+    }
+
+    public boolean is_unknown(int i, int j) {
+        return get_bit(unknown, i, j);
+    }
+
+    public boolean is_number(int i, int j) {
+        return get_bit(number, i, j);
+    }
+
+    public int get_number(int i, int j) {
+        return values[i * ncols + j];
+    }
+
+    private long row_window(long[] mask, int i, int j) {
+        if (i < 0 || i >= nrows) {
+            return 0;
+        }
+        int base = i * words;
+        int start = j - 1;
+        if (start < 0) {
+            return (mask[base] << 1) & 0b110L;
+        }
+        int word = start >>> 6;
+        int bit = start & 63;
+        long bits = mask[base + word] >>> bit;
+        if (bit > 61 && word + 1 < words) {
+            bits |= mask[base + word + 1] << (64 - bit);
+        }
+        return bits & 0b111L;
+    }
+
+    // Bit (di + 1) * 3 + (dj + 1) of the result is the cell (i + di, j + dj).
+    private long window(long[] mask, int i, int j) {
+        return row_window(mask, i - 1, j) | row_window(mask, i, j) << 3 | row_window(mask, i + 1, j) << 6;
+    }
+
+    public int count_mines_around(int i, int j) {
+        return Long.bitCount(window(mine, i, j) & NEIGHBORHOOD_MASK);
+    }
+
+    public int count_unknowns_around(int i, int j) {
+        return Long.bitCount(window(unknown, i, j) & NEIGHBORHOOD_MASK);
+    }
+
+    public int get_numbers_around(int i, int j) {
+        return (int) (window(number, i, j) & NEIGHBORHOOD_MASK);
+    }
+}
@@ -0,0 +1,104 @@
+import java.util.BitSet;
+
+// Search orders for the cells of one block. Cells are numbered 0..n-1 in BFS order, numbers 0..m-1;
+// cell_numbers[p] lists the numbers next to cell p and number_cells[q] the block cells next to number q.
+public class BlockOrdering {
+    public static int[] get_most_constrained_order(int[][] cell_numbers, int[][] number_cells) {
+        int n = cell_numbers.length;
+        int[] order = new int[n];
+        boolean[] placed = new boolean[n];
+        int[] constrained = new int[n];
+        int[] degree = new int[n];
+        for (int p = 0; p < n; ++p) {
+            for (int q : cell_numbers[p]) {
+                degree[p] += number_cells[q].length - 1;
+            }
+        }
+        for (int k = 0; k < n; ++k) {
+            int best = -1;
+            for (int p = 0; p < n; ++p) {
+                if (!placed[p] && (-1 == best || constrained[p] > constrained[best] || (constrained[p] == constrained[best] && degree[p] > degree[best]))) {
+                    best = p;
+                }
+            }
+            order[k] = best;
+            placed[best] = true;
+            for (int q : cell_numbers[best]) {
+                for (int p : number_cells[q]) {
+                    ++constrained[p];
+                }
+            }
+        }
+        return order;
+    }
+
+    // slack[q] is min(mines still needed, cells that must stay safe) for number q; 0 means it is already forced.
+    public static int[] get_smallest_slack_order(int[][] cell_numbers, int[][] number_cells, int[] slack) {
+        int n = cell_numbers.length;
+        int m = number_cells.length;
+        int[] order = new int[n];
+        boolean[] placed = new boolean[n];
+        boolean[] touched = new boolean[m];
+        boolean[] done = new boolean[m];
+        int k = 0;
+        while (k < n) {
+            int best = -1;
+            for (int q = 0; q < m; ++q) {
+                if (done[q]) {
+                    continue;
+                }
+                if (-1 == best || (touched[q] && !touched[best]) || (touched[q] == touched[best] && slack[q] < slack[best])) {
+                    best = q;
+                }
+            }
+            done[best] = true;
+            for (int p : number_cells[best]) {
+                if (!placed[p]) {
+                    placed[p] = true;
+                    order[k++] = p;
+                    for (int q : cell_numbers[p]) {
+                        touched[q] = true;
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    // Reverse min-degree elimination order: cells that separate the block come first, then each part in turn.
+    public static int[] get_tree_decomposition_order(int[][] cell_numbers, int[][] number_cells) {
+        int n = cell_numbers.length;
+        BitSet[] adjacent = new BitSet[n];
+        for (int p = 0; p < n; ++p) {
+            adjacent[p] = new BitSet(n);
+        }
+        for (int[] cells : number_cells) {
+            for (int p : cells) {
+                for (int r : cells) {
+                    if (p != r) {
+                        adjacent[p].set(r);
+                    }
+                }
+            }
+        }
+        int[] order = new int[n];
+        boolean[] eliminated = new boolean[n];
+        for (int k = n - 1; k >= 0; --k) {
+            int best = -1;
+            for (int p = 0; p < n; ++p) {
+                if (!eliminated[p] && (-1 == best || adjacent[p].cardinality() < adjacent[best].cardinality())) {
+                    best = p;
+                }
+            }
+            order[k] = best;
+            eliminated[best] = true;
+            BitSet neighbors = adjacent[best];
+            for (int p = neighbors.nextSetBit(0); p >= 0; p = neighbors.nextSetBit(p + 1)) {
+                adjacent[p].or(neighbors);
+                adjacent[p].clear(p);
+                adjacent[p].clear(best);
+            }
+        }
+        return order;
+    }
+}
@@ -0,0 +1,96 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+public class BoardTopology {
+    private static final ConcurrentHashMap<Long, BoardTopology> topologies = new ConcurrentHashMap<>();
+    private final int nrows;
+    private final int ncols;
+    // Neighbours of cell c are entries neighbor_start[c] until neighbor_start[c + 1], in unit_vectors order.
+    private final int[] neighbor_start;
+    private final int[] neighbors;
+    private final int[] neighbor_rows;
+    private final int[] neighbor_cols;
+
+    private BoardTopology(int nrows, int ncols) {
+        this.nrows = nrows;
+        this.ncols = ncols;
+        neighbor_start = new int[nrows * ncols + 1];
+        int total = 0;
+        for (int i = 0; i < nrows; ++i) {
+            for (int j = 0; j < ncols; ++j) {
+                neighbor_start[i * ncols + j] = total;
+                total += (Math.min(nrows - 1, i + 1) - Math.max(0, i - 1) + 1) * (Math.min(ncols - 1, j + 1) - Math.max(0, j - 1) + 1) - 1;
+            }
+        }
+        neighbor_start[nrows * ncols] = total;
+        neighbors = new int[total];
+        neighbor_rows = new int[total];
+        neighbor_cols = new int[total];
+        int k = 0;
+        for (int i = 0; i < nrows; ++i) {
+            for (int j = 0; j < ncols; ++j) {
+                for (int[] unit_vector : MinesweeperState.unit_vectors) {
+                    int new_i = i + unit_vector[0];
+                    int new_j = j + unit_vector[1];
+                    if (new_i >= 0 && new_i < nrows && new_j >= 0 && new_j < ncols) {
+                        neighbors[k] = new_i * ncols + new_j;
+                        neighbor_rows[k] = new_i;
+                        neighbor_cols[k] = new_j;
+                        ++k;
+                    }
+                }
+            }
+        }
+    }
+
+    public static BoardTopology get(int nrows, int ncols) {
+        return topologies.computeIfAbsent((long) nrows << 32 | ncols, key -> new BoardTopology(nrows, ncols));
+    }
+
+    public static BoardTopology get(char[][] map) {
+        return get(map.length, map[0].length);
+    }
+
+    public boolean has_shape(int nrows, int ncols) {
+        return this.nrows == nrows && this.ncols == ncols;
+    }
+
+    public int get_nrows() {
+        return nrows;
+    }
+
+    public int get_ncols() {
+        return ncols;
+    }
+
+    public int get_cell(int i, int j) {
+        return i * ncols + j;
+    }
+
+    public int get_start(int cell) {
+        return neighbor_start[cell];
+    }
+
+    public int get_end(int cell) {
+        return neighbor_start[cell + 1];
+    }
+
+    public int get_start(int i, int j) {
+        return neighbor_start[i * ncols + j];
+    }
+
+    public int get_end(int i, int j) {
+        return neighbor_start[i * ncols + j + 1];
+    }
+
+    public int get_neighbor(int k) {
+        return neighbors[k];
+    }
+
+    public int get_neighbor_row(int k) {
+        return neighbor_rows[k];
+    }
+
+    public int get_neighbor_col(int k) {
+        return neighbor_cols[k];
+    }
+}
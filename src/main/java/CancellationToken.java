@@ -0,0 +1,11 @@
+public class CancellationToken {
+    private volatile boolean cancelled = false;
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean is_cancelled() {
+        return cancelled;
+    }
+}
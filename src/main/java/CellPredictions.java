@@ -0,0 +1,107 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class CellPredictions {
+    private static final byte SAFE = 0;
+    private static final byte MINE = 1;
+    private final int ncols;
+    private int[] cells;
+    private byte[] states;
+    private int size;
+
+    public CellPredictions(int ncols) {
+        this(ncols, 16);
+    }
+
+    public CellPredictions(int ncols, int capacity) {
+        this.ncols = ncols;
+        cells = new int[Math.max(1, capacity)];
+        states = new byte[cells.length];
+        size = 0;
+    }
+
+    public static int to_cell(int i, int j, int ncols) {
+        return i * ncols + j;
+    }
+
+    public static CellPredictions from_pairs(ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions, int ncols) {
+        if (null == predictions) {
+            return null;
+        }
+        CellPredictions cell_predictions = new CellPredictions(ncols, predictions.size());
+        cell_predictions.add_all(predictions);
+        return cell_predictions;
+    }
+
+    public ArrayList<Pair<Pair<Integer, Integer>, Character>> to_pairs() {
+        ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = new ArrayList<>(size);
+        for (int k = 0; k < size; ++k) {
+            predictions.add(new Pair<>(new Pair<>(get_row(k), get_col(k)), get_state(k)));
+        }
+        return predictions;
+    }
+
+    public void add(int cell, char state) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+            states = Arrays.copyOf(states, size * 2);
+        }
+        cells[size] = cell;
+        states[size] = MinesweeperState.MINE_FLAG == state ? MINE : SAFE;
+        ++size;
+    }
+
+    public void add(int i, int j, char state) {
+        add(to_cell(i, j, ncols), state);
+    }
+
+    public void add_all(List<Pair<Pair<Integer, Integer>, Character>> predictions) {
+        for (Pair<Pair<Integer, Integer>, Character> prediction : predictions) {
+            Pair<Integer, Integer> point = prediction.getFirst();
+            add(point.getFirst(), point.getSecond(), prediction.getSecond());
+        }
+    }
+
+    // A copy of the entries start <= k < end.
+    public CellPredictions sub_predictions(int start, int end) {
+        assert 0 <= start && start <= end && end <= size;
+        CellPredictions sub_predictions = new CellPredictions(ncols, end - start);
+        System.arraycopy(cells, start, sub_predictions.cells, 0, end - start);
+        System.arraycopy(states, start, sub_predictions.states, 0, end - start);
+        sub_predictions.size = end - start;
+        return sub_predictions;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return 0 == size;
+    }
+
+    public int get_ncols() {
+        return ncols;
+    }
+
+    public int get_cell(int k) {
+        return cells[k];
+    }
+
+    public int get_row(int k) {
+        return cells[k] / ncols;
+    }
+
+    public int get_col(int k) {
+        return cells[k] % ncols;
+    }
+
+    public boolean is_mine(int k) {
+        return MINE == states[k];
+    }
+
+    public char get_state(int k) {
+        return MINE == states[k] ? MinesweeperState.MINE_FLAG : MinesweeperState.ZERO;
+    }
+}
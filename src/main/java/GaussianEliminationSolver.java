@@ -218,6 +218,51 @@ final class BigIntMath {
     }
 }
 
+final class LongMath {
+    private LongMath() {
+    }
+
+    static long gcd(long a, long b) {
+        a = Math.absExact(a);
+        b = Math.absExact(b);
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    static long rowGcd(long[] row) {
+        long g = 0;
+        for (long v : row) {
+            if (v != 0) {
+                g = g == 0 ? Math.absExact(v) : gcd(g, v);
+            }
+        }
+        return g;
+    }
+
+    static void normalizeRow(long[] row) {
+        long g = rowGcd(row);
+        if (g > 1) {
+            for (int i = 0; i < row.length; ++i) {
+                row[i] /= g;
+            }
+        }
+        for (long v : row) {
+            if (v != 0) {
+                if (v < 0) {
+                    for (int i = 0; i < row.length; ++i) {
+                        row[i] = Math.negateExact(row[i]);
+                    }
+                }
+                break;
+            }
+        }
+    }
+}
+
 final class FractionFreeEchelon {
     private FractionFreeEchelon() {
     }
@@ -279,6 +324,60 @@ final class FractionFreeEchelon {
         return M;
     }
 
+    /**
+     * Same as {@link #echelonAugmented(BigInteger[][], BigInteger[])} on machine words.
+     *
+     * @throws ArithmeticException if an intermediate value overflows a long
+     */
+    static long[][] echelonAugmented(long[][] A, long[] b) {
+        int m = A.length;
+        int n = (m == 0) ? 0 : A[0].length;
+        if (b.length != m) {
+            throw new IllegalArgumentException("b length must equal number of rows in A");
+        }
+        long[][] M = new long[m][n + 1];
+        for (int i = 0; i < m; ++i) {
+            if (A[i].length != n) {
+                throw new IllegalArgumentException("A must be rectangular");
+            }
+            System.arraycopy(A[i], 0, M[i], 0, n);
+            M[i][n] = b[i];
+            LongMath.normalizeRow(M[i]);
+        }
+        int row = 0;
+        for (int col = 0; col < n && row < m; ++col) {
+            int piv = -1;
+            for (int r = row; r < m; ++r) {
+                if (M[r][col] != 0) {
+                    piv = r;
+                    break;
+                }
+            }
+            if (piv == -1) continue;
+            if (piv != row) {
+                long[] tmp = M[piv];
+                M[piv] = M[row];
+                M[row] = tmp;
+            }
+            long pivot = M[row][col];
+            for (int r = row + 1; r < m; ++r) {
+                long a = M[r][col];
+                if (a == 0) continue;
+                long g = LongMath.gcd(pivot, a);
+                long mulRow = pivot / g;
+                long mulPivot = a / g;
+                for (int j = col; j <= n; ++j) {
+                    M[r][j] = Math.subtractExact(Math.multiplyExact(M[r][j], mulRow), Math.multiplyExact(M[row][j], mulPivot));
+                }
+                M[r][col] = 0;
+                LongMath.normalizeRow(M[r]);
+            }
+            LongMath.normalizeRow(M[row]);
+            ++row;
+        }
+        return M;
+    }
+
     private static int pivotCol(BigInteger[] row) {
         int n = row.length - 1;
         for (int j = 0; j < n; ++j) {
@@ -321,6 +420,270 @@ final class FractionFreeEchelon {
         BigInteger[][] M = echelonAugmented(A, b);
         return backEliminateAugmented(M);
     }
+
+    private static int pivotCol(long[] row) {
+        int n = row.length - 1;
+        for (int j = 0; j < n; ++j) {
+            if (row[j] != 0) return j;
+        }
+        return -1;
+    }
+
+    static long[][] backEliminateAugmented(long[][] M) {
+        int m = M.length;
+        if (m == 0) return M;
+        int n = M[0].length - 1;
+        int[] pivots = new int[m];
+        for (int i = 0; i < m; ++i) {
+            pivots[i] = pivotCol(M[i]);
+            LongMath.normalizeRow(M[i]);
+        }
+        for (int pr = m - 1; pr >= 0; --pr) {
+            int pc = pivots[pr];
+            if (pc == -1) continue;
+            long pivot = M[pr][pc];
+            for (int r = pr - 1; r >= 0; --r) {
+                long a = M[r][pc];
+                if (a == 0) continue;
+                long g = LongMath.gcd(pivot, a);
+                long mulRow = pivot / g;
+                long mulPivot = a / g;
+                for (int j = pc; j <= n; ++j) {
+                    M[r][j] = Math.subtractExact(Math.multiplyExact(M[r][j], mulRow), Math.multiplyExact(M[pr][j], mulPivot));
+                }
+                M[r][pc] = 0;
+                LongMath.normalizeRow(M[r]);
+            }
+            LongMath.normalizeRow(M[pr]);
+        }
+        return M;
+    }
+
+    static long[][] echelonBackEliminateAugmented(long[][] A, long[] b) {
+        long[][] M = echelonAugmented(A, b);
+        return backEliminateAugmented(M);
+    }
+}
+
+final class SparseEquationSystem {
+    private final int n;
+    private int m;
+    private int[][] cols;
+    private long[][] vals;
+    private long[] rhs;
+    // colRows[j] lists every row that may have a non-zero in column j; during elimination entries are checked on use,
+    // afterwards the lists are exact.
+    private final int[][] colRows;
+    private final int[] colRowCount;
+
+    SparseEquationSystem(int n) {
+        this.n = n;
+        cols = new int[8][];
+        vals = new long[8][];
+        rhs = new long[8];
+        colRows = new int[n][];
+        colRowCount = new int[n];
+    }
+
+    SparseEquationSystem(SparseEquationSystem other) {
+        n = other.n;
+        m = other.m;
+        cols = other.cols.clone();
+        vals = other.vals.clone();
+        rhs = other.rhs.clone();
+        colRows = new int[n][];
+        for (int j = 0; j < n; ++j) {
+            if (other.colRows[j] != null) {
+                colRows[j] = other.colRows[j].clone();
+            }
+        }
+        colRowCount = other.colRowCount.clone();
+    }
+
+    int columns() {
+        return n;
+    }
+
+    int rows() {
+        return m;
+    }
+
+    int[] rowColumns(int r) {
+        return cols[r];
+    }
+
+    long[] rowValues(int r) {
+        return vals[r];
+    }
+
+    long rhs(int r) {
+        return rhs[r];
+    }
+
+    /**
+     * @param c strictly increasing column indices of the non-zero coefficients
+     * @param v the coefficients, none of them zero
+     */
+    void addRow(int[] c, long[] v, long b) {
+        if (m == cols.length) {
+            cols = Arrays.copyOf(cols, 2 * m);
+            vals = Arrays.copyOf(vals, 2 * m);
+            rhs = Arrays.copyOf(rhs, 2 * m);
+        }
+        cols[m] = c;
+        vals[m] = v;
+        rhs[m] = b;
+        for (int j : c) {
+            link(j, m);
+        }
+        normalizeRow(m);
+        ++m;
+    }
+
+    private void link(int col, int row) {
+        if (colRows[col] == null) {
+            colRows[col] = new int[4];
+        } else if (colRowCount[col] == colRows[col].length) {
+            colRows[col] = Arrays.copyOf(colRows[col], 2 * colRowCount[col]);
+        }
+        colRows[col][colRowCount[col]++] = row;
+    }
+
+    long coefficient(int r, int col) {
+        int k = Arrays.binarySearch(cols[r], col);
+        return k >= 0 ? vals[r][k] : 0;
+    }
+
+    private void normalizeRow(int r) {
+        long[] v = vals[r];
+        long g = Math.absExact(rhs[r]);
+        for (long x : v) {
+            g = g == 0 ? Math.absExact(x) : LongMath.gcd(g, x);
+        }
+        boolean negate = v.length > 0 ? v[0] < 0 : rhs[r] < 0;
+        if (g > 1 || negate) {
+            long f = negate ? -g : g;
+            long[] w = new long[v.length];
+            for (int k = 0; k < v.length; ++k) {
+                w[k] = v[k] / f;
+            }
+            vals[r] = w;
+            rhs[r] /= f;
+        }
+    }
+
+    // Row r becomes r * mulRow - p * mulPivot; every changed row gets fresh arrays so copies stay intact.
+    private void combine(int r, int p, long mulRow, long mulPivot) {
+        int[] rc = cols[r], pc = cols[p];
+        long[] rv = vals[r], pv = vals[p];
+        int[] c = new int[rc.length + pc.length];
+        long[] v = new long[rc.length + pc.length];
+        int size = 0, i = 0, k = 0;
+        while (i < rc.length || k < pc.length) {
+            int col;
+            long x;
+            if (k == pc.length || (i < rc.length && rc[i] < pc[k])) {
+                col = rc[i];
+                x = Math.multiplyExact(rv[i++], mulRow);
+            } else if (i == rc.length || pc[k] < rc[i]) {
+                col = pc[k];
+                x = Math.negateExact(Math.multiplyExact(pv[k++], mulPivot));
+                link(col, r);
+            } else {
+                col = rc[i];
+                x = Math.subtractExact(Math.multiplyExact(rv[i++], mulRow), Math.multiplyExact(pv[k++], mulPivot));
+            }
+            if (x != 0) {
+                c[size] = col;
+                v[size++] = x;
+            }
+        }
+        cols[r] = Arrays.copyOf(c, size);
+        vals[r] = Arrays.copyOf(v, size);
+        rhs[r] = Math.subtractExact(Math.multiplyExact(rhs[r], mulRow), Math.multiplyExact(rhs[p], mulPivot));
+        normalizeRow(r);
+    }
+
+    /**
+     * Fraction-free Gauss-Jordan elimination: afterwards every pivot column is non-zero in its pivot row only.
+     * Pivots are chosen per column as the shortest candidate row to limit fill-in, and only rows listed for
+     * the pivot column are touched, so the work follows the non-zero entries rather than rows x columns.
+     *
+     * @throws ArithmeticException if a coefficient overflows a long
+     */
+    void eliminate() {
+        boolean[] isPivotRow = new boolean[m];
+        for (int col = 0; col < n; ++col) {
+            int count = colRowCount[col];
+            int piv = -1;
+            for (int k = 0; k < count; ++k) {
+                int r = colRows[col][k];
+                if (!isPivotRow[r] && coefficient(r, col) != 0 && (piv == -1 || cols[r].length < cols[piv].length)) {
+                    piv = r;
+                }
+            }
+            if (piv == -1) continue;
+            isPivotRow[piv] = true;
+            long pivot = coefficient(piv, col);
+            for (int k = 0; k < count; ++k) {
+                int r = colRows[col][k];
+                if (r == piv) continue;
+                long a = coefficient(r, col);
+                if (a == 0) continue;
+                long g = LongMath.gcd(pivot, a);
+                combine(r, piv, pivot / g, a / g);
+            }
+            colRows[col][0] = piv;
+            colRowCount[col] = 1;
+        }
+        Arrays.fill(colRowCount, 0);
+        for (int r = 0; r < m; ++r) {
+            for (int j : cols[r]) {
+                link(j, r);
+            }
+        }
+    }
+
+    int columnRowCount(int col) {
+        return colRowCount[col];
+    }
+
+    int columnRow(int col, int k) {
+        return colRows[col][k];
+    }
+
+    long[][] toLongMatrix() {
+        long[][] A = new long[m][n];
+        for (int r = 0; r < m; ++r) {
+            for (int k = 0; k < cols[r].length; ++k) {
+                A[r][cols[r][k]] = vals[r][k];
+            }
+        }
+        return A;
+    }
+
+    long[] toLongRhs() {
+        return Arrays.copyOf(rhs, m);
+    }
+
+    BigInteger[][] toDenseMatrix() {
+        BigInteger[][] A = new BigInteger[m][n];
+        for (int r = 0; r < m; ++r) {
+            Arrays.fill(A[r], BigInteger.ZERO);
+            for (int k = 0; k < cols[r].length; ++k) {
+                A[r][cols[r][k]] = BigInteger.valueOf(vals[r][k]);
+            }
+        }
+        return A;
+    }
+
+    BigInteger[] toDenseRhs() {
+        BigInteger[] b = new BigInteger[m];
+        for (int r = 0; r < m; ++r) {
+            b[r] = BigInteger.valueOf(rhs[r]);
+        }
+        return b;
+    }
 }
 
 final class BinaryBoundsPropagator {
@@ -392,6 +755,151 @@ final class BinaryBoundsPropagator {
         return new Result(forced, false);
     }
 
+    /**
+     * Same as {@link #propagate(BigInteger[][])} on machine words.
+     *
+     * @throws ArithmeticException if a row sum overflows a long
+     */
+    public static Result propagate(long[][] M) {
+        int m = M.length;
+        if (m == 0) return new Result(new HashMap<>(), false);
+        int n = M[0].length - 1;
+        Map<Integer, BigInteger> forced = new HashMap<>();
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (long[] row : M) {
+                long b = row[n];
+                long totalMin = 0;
+                long totalMax = 0;
+                int unknownCount = 0;
+                for (int j = 0; j < n; ++j) {
+                    long a = row[j];
+                    if (a == 0) continue;
+                    unknownCount++;
+                    if (a > 0) {
+                        totalMax = Math.addExact(totalMax, a);
+                    } else {
+                        totalMin = Math.addExact(totalMin, a);
+                    }
+                }
+                if (unknownCount == 0) {
+                    if (b != 0) return new Result(forced, true);
+                    continue;
+                }
+                if (b < totalMin || b > totalMax) {
+                    return new Result(forced, true);
+                }
+                for (int k = 0; k < n; ++k) {
+                    long ak = row[k];
+                    if (ak == 0) continue;
+                    long minExclK = ak < 0 ? totalMin - ak : totalMin;
+                    long maxExclK = ak > 0 ? totalMax - ak : totalMax;
+                    boolean feasible0 = (b >= minExclK && b <= maxExclK);
+                    long target1 = Math.subtractExact(b, ak);
+                    boolean feasible1 = (target1 >= minExclK && target1 <= maxExclK);
+                    if (!feasible0 && !feasible1) {
+                        return new Result(forced, true);
+                    } else if (feasible0 && !feasible1) {
+                        forced.put(k, BigInteger.ZERO);
+                        substitute(M, k, 0);
+                        changed = true;
+                        break;
+                    } else if (!feasible0 && feasible1) {
+                        forced.put(k, BigInteger.ONE);
+                        substitute(M, k, 1);
+                        changed = true;
+                        break;
+                    }
+                }
+                if (changed) break;
+            }
+        }
+        return new Result(forced, false);
+    }
+
+    /**
+     * Same as {@link #propagate(BigInteger[][])} on a sparse system, driven by a worklist: fixing a variable only
+     * updates the bounds of the rows containing it and queues those rows again. The system itself is not modified.
+     *
+     * @throws ArithmeticException if a row sum overflows a long
+     */
+    public static Result propagate(SparseEquationSystem S) {
+        int m = S.rows();
+        Map<Integer, BigInteger> forced = new HashMap<>();
+        long[] rhs = new long[m];
+        long[] rowMin = new long[m];
+        long[] rowMax = new long[m];
+        int[] unknownCount = new int[m];
+        boolean[] queued = new boolean[m];
+        boolean[] assigned = new boolean[S.columns()];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int r = 0; r < m; ++r) {
+            rhs[r] = S.rhs(r);
+            for (long a : S.rowValues(r)) {
+                if (a > 0) {
+                    rowMax[r] = Math.addExact(rowMax[r], a);
+                } else {
+                    rowMin[r] = Math.addExact(rowMin[r], a);
+                }
+            }
+            unknownCount[r] = S.rowColumns(r).length;
+            queue.add(r);
+            queued[r] = true;
+        }
+        while (!queue.isEmpty()) {
+            int r = queue.poll();
+            queued[r] = false;
+            long b = rhs[r];
+            if (unknownCount[r] == 0) {
+                if (b != 0) return new Result(forced, true);
+                continue;
+            }
+            long totalMin = rowMin[r];
+            long totalMax = rowMax[r];
+            if (b < totalMin || b > totalMax) {
+                return new Result(forced, true);
+            }
+            int[] cols = S.rowColumns(r);
+            long[] vals = S.rowValues(r);
+            for (int k = 0; k < cols.length; ++k) {
+                if (assigned[cols[k]]) continue;
+                long ak = vals[k];
+                long minExclK = ak < 0 ? totalMin - ak : totalMin;
+                long maxExclK = ak > 0 ? totalMax - ak : totalMax;
+                boolean feasible0 = (b >= minExclK && b <= maxExclK);
+                long target1 = Math.subtractExact(b, ak);
+                boolean feasible1 = (target1 >= minExclK && target1 <= maxExclK);
+                if (!feasible0 && !feasible1) {
+                    return new Result(forced, true);
+                } else if (feasible0 != feasible1) {
+                    int col = cols[k];
+                    forced.put(col, feasible1 ? BigInteger.ONE : BigInteger.ZERO);
+                    assigned[col] = true;
+                    for (int i = 0; i < S.columnRowCount(col); ++i) {
+                        int row = S.columnRow(col, i);
+                        long a = S.coefficient(row, col);
+                        if (feasible1) {
+                            rhs[row] = Math.subtractExact(rhs[row], a);
+                        }
+                        if (a > 0) {
+                            rowMax[row] -= a;
+                        } else {
+                            rowMin[row] -= a;
+                        }
+                        --unknownCount[row];
+                        if (!queued[row]) {
+                            queue.add(row);
+                            queued[row] = true;
+                        }
+                    }
+                    break;
+                }
+            }
+        }
+        return new Result(forced, false);
+    }
+
     private static void substitute(BigInteger[][] M, int k, BigInteger val) {
         int m = M.length;
         int n = M[0].length - 1;
@@ -405,14 +913,39 @@ final class BinaryBoundsPropagator {
             BigIntMath.normalizeRow(M[i]);
         }
     }
+
+    private static void substitute(long[][] M, int k, long val) {
+        int m = M.length;
+        int n = M[0].length - 1;
+        for (int i = 0; i < m; ++i) {
+            long ak = M[i][k];
+            if (ak == 0) continue;
+            if (val == 1) {
+                M[i][n] = Math.subtractExact(M[i][n], ak);
+            }
+            M[i][k] = 0;
+            LongMath.normalizeRow(M[i]);
+        }
+    }
 }
 
 public class GaussianEliminationSolver {
-    private static BigInteger[] initialize_coefficients(final int length) {
-        BigInteger[] coefficients = new BigInteger[length];
-        Arrays.fill(coefficients, BigInteger.ZERO);
-        return coefficients;
+    private static BigInteger[] to_big_integers(final long[] values) {
+        BigInteger[] big_integers = new BigInteger[values.length];
+        for (int i = 0; i < values.length; ++i) {
+            big_integers[i] = BigInteger.valueOf(values[i]);
+        }
+        return big_integers;
     }
+
+    private static BigInteger[][] to_big_integers(final long[][] values) {
+        BigInteger[][] big_integers = new BigInteger[values.length][];
+        for (int i = 0; i < values.length; ++i) {
+            big_integers[i] = to_big_integers(values[i]);
+        }
+        return big_integers;
+    }
+
 //    private static HashMap<Integer, Rat> get_unique_solutions(final BigInteger[][] A, final BigInteger[] b) {
 //        HashMap<Integer, Rat> unique_solutions = new HashMap<>();
 //        Rat[][] rref = GaussianRREF.rrefAugmented(A, b);
@@ -444,9 +977,37 @@ public class GaussianEliminationSolver {
 //        return unique_solutions;
 //    }
 
+    private static HashMap<Integer, Rat> get_unique_solutions(SparseEquationSystem equations) {
+        BinaryBoundsPropagator.Result result;
+        try {
+            SparseEquationSystem M = new SparseEquationSystem(equations);
+            M.eliminate();
+            result = BinaryBoundsPropagator.propagate(M);
+        } catch (ArithmeticException e) {
+            return get_unique_solutions(equations.toLongMatrix(), equations.toLongRhs());
+        }
+        return get_unique_solutions(result);
+    }
+
+    // The dense rows eliminate in column order rather than by shortest pivot, so their intermediate values differ
+    // from the sparse ones; BigInteger is the last resort.
+    private static HashMap<Integer, Rat> get_unique_solutions(long[][] A, long[] b) {
+        BinaryBoundsPropagator.Result result;
+        try {
+            long[][] M = FractionFreeEchelon.echelonBackEliminateAugmented(A, b);
+            result = BinaryBoundsPropagator.propagate(M);
+        } catch (ArithmeticException e) {
+            return get_unique_solutions(to_big_integers(A), to_big_integers(b));
+        }
+        return get_unique_solutions(result);
+    }
+
     private static HashMap<Integer, Rat> get_unique_solutions(BigInteger[][] A, BigInteger[] b) {
         BigInteger[][] M = FractionFreeEchelon.echelonBackEliminateAugmented(A, b);
-        BinaryBoundsPropagator.Result result = BinaryBoundsPropagator.propagate(M);
+        return get_unique_solutions(BinaryBoundsPropagator.propagate(M));
+    }
+
+    private static HashMap<Integer, Rat> get_unique_solutions(BinaryBoundsPropagator.Result result) {
         if (result.inconsistent) {
             return null;
         }
@@ -465,69 +1026,65 @@ public class GaussianEliminationSolver {
         return uniqueSolutions;
     }
 
-    private static void process_number_point(final ArrayList<Pair<Integer, Integer>> block, final char[][] map, final boolean[][] prediction_tag, final Pair<Integer, Integer> number_point, final boolean[][] visited, final HashMap<Pair<Integer, Integer>, Integer> point_index, final ArrayList<BigInteger[]> A, final ArrayList<BigInteger> b) {
-        if (!visited[number_point.getFirst()][number_point.getSecond()]) {
+    private static void process_number_point(final BoardTopology topology, final char[][] map, final boolean[][] prediction_tag, final int number_point, final boolean[] visited, final int[] point_index, final int[] prediction_point_indices, final SparseEquationSystem equations) {
+        if (!visited[number_point]) {
             int mines = 0;
-            ArrayList<Integer> prediction_point_indices = new ArrayList<>();
-            for (int[] unit_vector : MinesweeperState.unit_vectors) {
-                int new_i = number_point.getFirst() + unit_vector[0];
-                int new_j = number_point.getSecond() + unit_vector[1];
-                if (new_i >= 0 && new_i < map.length && new_j >= 0 && new_j < map[0].length) {
-                    if (prediction_tag[new_i][new_j]) {
-                        prediction_point_indices.add(point_index.get(new Pair<>(new_i, new_j)));
-                    } else if (MinesweeperState.MINE_FLAG == map[new_i][new_j]) {
-                        ++mines;
-                    }
+            int count = 0;
+            for (int k = topology.get_start(number_point), end = topology.get_end(number_point); k < end; ++k) {
+                int new_i = topology.get_neighbor_row(k);
+                int new_j = topology.get_neighbor_col(k);
+                if (prediction_tag[new_i][new_j]) {
+                    prediction_point_indices[count++] = point_index[topology.get_neighbor(k)];
+                } else if (MinesweeperState.MINE_FLAG == map[new_i][new_j]) {
+                    ++mines;
                 }
             }
-            int total = MinesweeperState.to_number(map[number_point.getFirst()][number_point.getSecond()]) - mines;
-            if (0 == total) {
-                for (int prediction_point_index : prediction_point_indices) {
-                    BigInteger[] coefficients = initialize_coefficients(block.size());
-                    coefficients[prediction_point_index] = BigInteger.ONE;
-                    A.add(coefficients);
-                    b.add(BigInteger.ZERO);
-                }
-            } else if (total == prediction_point_indices.size()) {
-                for (int prediction_point_index : prediction_point_indices) {
-                    BigInteger[] coefficients = initialize_coefficients(block.size());
-                    coefficients[prediction_point_index] = BigInteger.ONE;
-                    A.add(coefficients);
-                    b.add(BigInteger.ONE);
+            int ncols = topology.get_ncols();
+            int total = MinesweeperState.to_number(map[number_point / ncols][number_point % ncols]) - mines;
+            if (0 == total || total == count) {
+                for (int k = 0; k < count; ++k) {
+                    equations.addRow(new int[]{prediction_point_indices[k]}, new long[]{1}, 0 == total ? 0 : 1);
                 }
             } else {
-                BigInteger[] coefficients = initialize_coefficients(block.size());
-                for (int prediction_point_index : prediction_point_indices) {
-                    coefficients[prediction_point_index] = BigInteger.ONE;
-                }
-                A.add(coefficients);
-                b.add(BigInteger.valueOf(total));
+                int[] columns = Arrays.copyOf(prediction_point_indices, count);
+                long[] coefficients = new long[count];
+                Arrays.fill(coefficients, 1);
+                Arrays.sort(columns);
+                equations.addRow(columns, coefficients, total);
             }
-            visited[number_point.getFirst()][number_point.getSecond()] = true;
+            visited[number_point] = true;
         }
     }
 
-    public static Pair<BigInteger[][], BigInteger[]> get_equations_from_block(final ArrayList<Pair<Integer, Integer>> block, final char[][] map, final boolean[][] prediction_tag) {
-        HashMap<Pair<Integer, Integer>, Integer> point_index = new HashMap<>();
+    public static SparseEquationSystem get_sparse_equations_from_block(final ArrayList<Pair<Integer, Integer>> block, final char[][] map, final boolean[][] prediction_tag) {
+        BoardTopology topology = BoardTopology.get(map);
+        int ncols = topology.get_ncols();
+        int[] point_index = new int[map.length * ncols];
         for (int i = 0; i < block.size(); ++i) {
-            point_index.put(block.get(i), i);
+            Pair<Integer, Integer> point = block.get(i);
+            point_index[point.getFirst() * ncols + point.getSecond()] = i;
         }
-        boolean[][] visited = new boolean[map.length][map[0].length];
-        ArrayList<BigInteger[]> A = new ArrayList<>();
-        ArrayList<BigInteger> b = new ArrayList<>();
+        boolean[] visited = new boolean[map.length * ncols];
+        int[] numbers_in_domain = new int[MinesweeperState.unit_vectors.length];
+        int[] prediction_point_indices = new int[MinesweeperState.unit_vectors.length];
+        SparseEquationSystem equations = new SparseEquationSystem(block.size());
         for (Pair<Integer, Integer> point : block) {
-            ArrayList<Pair<Integer, Integer>> numbers_in_domain = MinesweeperState.get_numbers_in_domain(map, point.getFirst(), point.getSecond());
-            for (Pair<Integer, Integer> number_point : numbers_in_domain) {
-                process_number_point(block, map, prediction_tag, number_point, visited, point_index, A, b);
+            int number_count = MinesweeperState.get_numbers_in_domain(topology, map, point.getFirst() * ncols + point.getSecond(), numbers_in_domain);
+            for (int k = 0; k < number_count; ++k) {
+                process_number_point(topology, map, prediction_tag, numbers_in_domain[k], visited, point_index, prediction_point_indices, equations);
             }
         }
-        return new Pair<>(A.toArray(new BigInteger[0][]), b.toArray(new BigInteger[0]));
+        return equations;
+    }
+
+    public static Pair<BigInteger[][], BigInteger[]> get_equations_from_block(final ArrayList<Pair<Integer, Integer>> block, final char[][] map, final boolean[][] prediction_tag) {
+        SparseEquationSystem equations = get_sparse_equations_from_block(block, map, prediction_tag);
+        return new Pair<>(equations.toDenseMatrix(), equations.toDenseRhs());
     }
 
     public static ArrayList<Pair<Pair<Integer, Integer>, Character>> get_predictions_from_block(final ArrayList<Pair<Integer, Integer>> block, final char[][] map, final boolean[][] prediction_tag) {
         ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = new ArrayList<>();
-        Pair<BigInteger[][], BigInteger[]> equations = get_equations_from_block(block, map, prediction_tag);
-        HashMap<Integer, Rat> unique_solutions = get_unique_solutions(equations.getFirst(), equations.getSecond());
+        HashMap<Integer, Rat> unique_solutions = get_unique_solutions(get_sparse_equations_from_block(block, map, prediction_tag));
         if (null == unique_solutions) {
             return null;
         }
@@ -538,7 +1095,7 @@ public class GaussianEliminationSolver {
                 if (solution.isZero()) {
                     predictions.add(new Pair<>(point, MinesweeperState.ZERO));
                 } else if (solution.isOne()) {
-                    predictions.add(new Pair<>(point, MinesweeperState.ONE));
+                    predictions.add(new Pair<>(point, MinesweeperState.MINE_FLAG));
                 } else {
                     return null;
                 }
@@ -558,4 +1115,35 @@ public class GaussianEliminationSolver {
         }
         return predictions;
     }
-}
\ No newline at end of file
+
+    // Differential check of the Gaussian tier against the exhaustive search on the bundled boards: the tier may
+    // find fewer cells, but every cell it forces must also be forced by the search.
+    public static void main(String[] args) {
+        String[] names = {"empty", "process", "hard", "hard2", "hard3", "hard4", "almost_final", "final"};
+        MinesweeperScanner minesweeperScanner = new MinesweeperScanner(30, 16);
+        int mismatches = 0;
+        for (String name : names) {
+            MinesweeperState state;
+            try {
+                state = minesweeperScanner.scan(ScreenCapture.load_screen_from_file("test_images/" + name + ".png"));
+            } catch (IllegalMapException e) {
+                System.out.println(name + ": skipped, the board is invalid");
+                continue;
+            }
+            for (boolean local_rules : new boolean[]{false, true}) {
+                state.set_local_rules(local_rules);
+                state.set_gaussian_elimination(false);
+                ArrayList<Pair<Pair<Integer, Integer>, Character>> exhaustive = state.get_predictions();
+                state.set_gaussian_elimination(true);
+                ArrayList<Pair<Pair<Integer, Integer>, Character>> fast = state.get_predictions();
+                boolean consistent = null == exhaustive ? null == fast : null != fast && new HashSet<>(exhaustive).containsAll(fast);
+                if (!consistent) {
+                    ++mismatches;
+                }
+                int gaussian = Collections.frequency(state.get_prediction_tiers(), MinesweeperState.PredictionTier.GAUSSIAN);
+                System.out.println(name + (local_rules ? " with local rules" : "") + ": " + (consistent ? "OK" : "MISMATCH") + " (search " + (null == exhaustive ? "illegal" : exhaustive.size()) + ", fast path " + (null == fast ? "illegal" : fast.size()) + ", " + gaussian + " by Gaussian elimination)");
+            }
+        }
+        System.out.println(mismatches + " mismatches");
+    }
+}
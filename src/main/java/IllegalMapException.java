@@ -0,0 +1,10 @@
+import java.io.Serial;
+
+final class IllegalMapException extends IllegalArgumentException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public IllegalMapException(String message) {
+        super(message);
+    }
+}
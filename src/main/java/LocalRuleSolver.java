@@ -0,0 +1,158 @@
+import java.util.ArrayList;
+
+public class LocalRuleSolver {
+    private static final byte UNKNOWN = 0;
+    private static final byte SAFE = 1;
+    private static final byte MINE = 2;
+    private static final byte REVEALED = 3;
+
+    private static byte[][] get_states(final char[][] map, final ArrayList<Pair<Pair<Integer, Integer>, Character>> resolved) {
+        byte[][] states = new byte[map.length][map[0].length];
+        for (int i = 0; i < map.length; ++i) {
+            for (int j = 0; j < map[0].length; ++j) {
+                if (MinesweeperState.is_unfinished_operand(map[i][j])) {
+                    states[i][j] = UNKNOWN;
+                } else if (MinesweeperState.MINE_FLAG == map[i][j]) {
+                    states[i][j] = MINE;
+                } else {
+                    states[i][j] = REVEALED;
+                }
+            }
+        }
+        for (Pair<Pair<Integer, Integer>, Character> prediction : resolved) {
+            Pair<Integer, Integer> point = prediction.getFirst();
+            states[point.getFirst()][point.getSecond()] = MinesweeperState.MINE_FLAG == prediction.getSecond() ? MINE : SAFE;
+        }
+        return states;
+    }
+
+    // Bit (di + 3) * 7 + (dj + 3) of the result is the unknown cell (center_i + di, center_j + dj).
+    private static long get_unknowns_mask(final byte[][] states, final int i, final int j, final int center_i, final int center_j) {
+        long mask = 0;
+        for (int new_i = Math.max(0, i - 1); new_i <= Math.min(states.length - 1, i + 1); ++new_i) {
+            for (int new_j = Math.max(0, j - 1); new_j <= Math.min(states[0].length - 1, j + 1); ++new_j) {
+                if (UNKNOWN == states[new_i][new_j]) {
+                    mask |= 1L << ((new_i - center_i + 3) * 7 + new_j - center_j + 3);
+                }
+            }
+        }
+        return mask;
+    }
+
+    private static int get_remaining_mines(final char[][] map, final byte[][] states, final int i, final int j) {
+        int mines = 0;
+        for (int new_i = Math.max(0, i - 1); new_i <= Math.min(states.length - 1, i + 1); ++new_i) {
+            for (int new_j = Math.max(0, j - 1); new_j <= Math.min(states[0].length - 1, j + 1); ++new_j) {
+                if (MINE == states[new_i][new_j]) {
+                    ++mines;
+                }
+            }
+        }
+        return MinesweeperState.to_number(map[i][j]) - mines;
+    }
+
+    private static void resolve(final byte[][] states, final long mask, final int center_i, final int center_j, final byte state, final ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions) {
+        for (long bits = mask; 0 != bits; bits &= bits - 1) {
+            int bit = Long.numberOfTrailingZeros(bits);
+            int i = center_i + bit / 7 - 3;
+            int j = center_j + bit % 7 - 3;
+            states[i][j] = state;
+            predictions.add(new Pair<>(new Pair<>(i, j), MINE == state ? MinesweeperState.MINE_FLAG : MinesweeperState.ZERO));
+        }
+    }
+
+    private static boolean apply_single_number_rules(final char[][] map, final byte[][] states, final ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions) {
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int i = 0; i < map.length; ++i) {
+                for (int j = 0; j < map[0].length; ++j) {
+                    if (!MinesweeperState.is_number(map[i][j])) {
+                        continue;
+                    }
+                    long unknowns = get_unknowns_mask(states, i, j, i, j);
+                    int remaining_mines = get_remaining_mines(map, states, i, j);
+                    int unknowns_count = Long.bitCount(unknowns);
+                    if (remaining_mines < 0 || remaining_mines > unknowns_count) {
+                        return false;
+                    }
+                    if (0 != unknowns_count && (0 == remaining_mines || unknowns_count == remaining_mines)) {
+                        resolve(states, unknowns, i, j, 0 == remaining_mines ? SAFE : MINE, predictions);
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static boolean apply_number_pair_rules(final char[][] map, final byte[][] states, final ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions) {
+        boolean changed = true;
+        while (changed) {
+            if (!apply_single_number_rules(map, states, predictions)) {
+                return false;
+            }
+            changed = false;
+            for (int i = 0; i < map.length; ++i) {
+                for (int j = 0; j < map[0].length; ++j) {
+                    if (!MinesweeperState.is_number(map[i][j])) {
+                        continue;
+                    }
+                    long unknowns = get_unknowns_mask(states, i, j, i, j);
+                    if (0 == unknowns) {
+                        continue;
+                    }
+                    int remaining_mines = get_remaining_mines(map, states, i, j);
+                    for (int other_i = Math.max(0, i - 2); other_i <= Math.min(map.length - 1, i + 2); ++other_i) {
+                        for (int other_j = Math.max(0, j - 2); other_j <= Math.min(map[0].length - 1, j + 2); ++other_j) {
+                            if ((other_i == i && other_j == j) || !MinesweeperState.is_number(map[other_i][other_j])) {
+                                continue;
+                            }
+                            long other_unknowns = get_unknowns_mask(states, other_i, other_j, i, j);
+                            if (0 == (unknowns & other_unknowns)) {
+                                continue;
+                            }
+                            long only_this = unknowns & ~other_unknowns;
+                            long only_other = other_unknowns & ~unknowns;
+                            int difference = get_remaining_mines(map, states, other_i, other_j) - remaining_mines;
+                            if (0 != only_other && Long.bitCount(only_other) == difference) {
+                                resolve(states, only_other, i, j, MINE, predictions);
+                                resolve(states, only_this, i, j, SAFE, predictions);
+                            } else if (0 != only_other && 0 == only_this && 0 == difference) {
+                                resolve(states, only_other, i, j, SAFE, predictions);
+                            } else {
+                                continue;
+                            }
+                            unknowns = get_unknowns_mask(states, i, j, i, j);
+                            remaining_mines = get_remaining_mines(map, states, i, j);
+                            changed = true;
+                            if (0 == unknowns) {
+                                break;
+                            }
+                        }
+                        if (0 == unknowns) {
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    public static ArrayList<Pair<Pair<Integer, Integer>, Character>> get_single_number_predictions(final char[][] map, final ArrayList<Pair<Pair<Integer, Integer>, Character>> resolved) {
+        ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = new ArrayList<>();
+        if (!apply_single_number_rules(map, get_states(map, resolved), predictions)) {
+            return null;
+        }
+        return predictions;
+    }
+
+    public static ArrayList<Pair<Pair<Integer, Integer>, Character>> get_number_pair_predictions(final char[][] map, final ArrayList<Pair<Pair<Integer, Integer>, Character>> resolved) {
+        ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = new ArrayList<>();
+        if (!apply_number_pair_rules(map, get_states(map, resolved), predictions)) {
+            return null;
+        }
+        return predictions;
+    }
+}
@@ -7,6 +7,7 @@ import java.awt.event.MouseEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.InputStream;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Random;
 import javax.swing.JTextField;
@@ -170,6 +171,14 @@ public class Main {
         return ScreenCapture.convert_image_to_screen(image);
     }
 
+    private static ScreenData capture_screen(JFrame frame, MinesweeperScanner minesweeperScanner) {
+        ScreenData screen = minesweeperScanner.capture_screen();
+        if (null == screen) {
+            screen_capture_failed_warning(frame);
+        }
+        return screen;
+    }
+
     public static JFrame makeFlipFrame(JFrame frame, final BufferedImage img1, final BufferedImage img2) {
         frame.setVisible(false);
         final JFrame f = new JFrame();
@@ -272,16 +281,19 @@ public class Main {
 
     static volatile boolean continue_computation;
     static volatile boolean computation_stopped_manually;
+    static final SolverExecutor solver_executor = new SolverExecutor();
     static AutoCloseable register;
 
-    private static void get_and_show_predictions_iteration(JFrame frame, boolean all, int width, int height, int time_upper_limit) {
+    private static void get_and_show_predictions_iteration(JFrame frame, boolean all, int width, int height, int time_upper_limit, CancellationToken token) {
         ScreenData screen = capture_screen(frame);
         if (screen != null) {
             debug_captured_screen(screen);
             MinesweeperScanner minesweeperScanner = new MinesweeperScanner(width, height);
+            minesweeperScanner.set_parallel_scanning(true);
             MinesweeperState state;
             try {
                 state = minesweeperScanner.scan(screen, debug);
+                state.set_parallel_search(true);
             } catch (Exception ex) {
                 if (ex instanceof IllegalMapException) {
                     illegal_board_warning(frame);
@@ -294,7 +306,7 @@ public class Main {
             int[][][] scanned_rgb_array = state.get_map_rgb_array();
             debug_scanned_board(state, scanned_rgb_array);
             if (check_status(state, frame)) {
-                ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = state.limit_time_get_prediction(time_upper_limit);
+                ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = state.get_predictions(Duration.ofMillis(time_upper_limit), token);
                 int[][][] marked_rgb_array;
                 if (null == predictions) {
                     illegal_board_warning(frame);
@@ -318,8 +330,8 @@ public class Main {
         }
     }
 
-    private static void get_and_show_predictions_thread(JFrame frame, boolean all, int width, int height, int time_upper_limit) {
-        get_and_show_predictions_iteration(frame, all, width, height, time_upper_limit);
+    private static void get_and_show_predictions_thread(JFrame frame, boolean all, int width, int height, int time_upper_limit, CancellationToken token) {
+        get_and_show_predictions_iteration(frame, all, width, height, time_upper_limit, token);
         continue_computation = false;
     }
 
@@ -331,24 +343,26 @@ public class Main {
         } else {
             continue_computation = true;
             computation_stopped_manually = false;
-            Thread workerThread = new Thread(() -> get_and_show_predictions_thread(frame, all, width, height, time_upper_limit));
-            new Thread(() -> {
-                while (continue_computation) {
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        break;
-                    }
-                }
-                workerThread.interrupt();
-                SwingUtilities.invokeLater(() -> after_process_button(frame, buttons));
-            }).start();
-            workerThread.start();
+            solver_executor.submit(token -> get_and_show_predictions_thread(frame, all, width, height, time_upper_limit, token), () -> SwingUtilities.invokeLater(() -> after_process_button(frame, buttons)));
         }
     }
 
-    private static boolean autoplay_iteration(MinesweeperScanner minesweeperScanner, MinesweeperState state, JFrame frame, int interval, int time_upper_limit) {
-        ScreenData screen = capture_screen(frame);
+    private static boolean autoplay_guess(MinesweeperScanner minesweeperScanner, MinesweeperState state, int interval, int time_upper_limit, CancellationToken token) {
+        double[][] probabilities = state.get_mine_probabilities(Duration.ofMillis(time_upper_limit), token);
+        if (null == probabilities || computation_stopped_manually) {
+            return false;
+        }
+        Pair<Pair<Integer, Integer>, Character> guess = MinesweeperState.get_least_risky_guess(probabilities);
+        if (null == guess) {
+            return false;
+        }
+        ArrayList<Pair<Pair<Integer, Integer>, Character>> guesses = new ArrayList<>();
+        guesses.add(guess);
+        return MinesweeperAutoplay.iteration(guesses, interval, minesweeperScanner, state, token);
+    }
+
+    private static boolean autoplay_iteration(MinesweeperScanner minesweeperScanner, MinesweeperState state, JFrame frame, int interval, int time_upper_limit, boolean guess, CancellationToken token) {
+        ScreenData screen = capture_screen(frame, minesweeperScanner);
         if (screen != null) {
             debug_captured_screen(screen);
             try {
@@ -364,11 +378,16 @@ public class Main {
                 return false;
             }
             if (check_status(state, frame)) {
-                ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = state.limit_time_get_prediction(time_upper_limit);
-                if (null == predictions) {
+                MinesweeperAutoplay.StreamingResult result = MinesweeperAutoplay.streaming_iteration(state, Duration.ofMillis(time_upper_limit), token, interval, minesweeperScanner);
+                CellPredictions predictions = result.predictions();
+                if (!result.successful()) {
+                    return false;
+                } else if (null == predictions) {
                     illegal_board_warning(frame);
                 } else if (!predictions.isEmpty()) {
-                    return MinesweeperAutoplay.iteration(predictions, interval, minesweeperScanner, state);
+                    return true;
+                } else if (guess && !computation_stopped_manually && autoplay_guess(minesweeperScanner, state, interval, time_upper_limit, token)) {
+                    return true;
                 } else if (!computation_stopped_manually) {
                     prediction_not_found_warning(frame);
                 }
@@ -387,18 +406,23 @@ public class Main {
         after_process_button(frame, buttons);
     }
 
-    private static void autoplay_thread(JFrame frame, int width, int height, int interval, int time_upper_limit) {
+    private static void autoplay_thread(JFrame frame, int width, int height, int interval, int time_upper_limit, boolean guess, CancellationToken token) {
         MinesweeperScanner minesweeperScanner = new MinesweeperScanner(width, height);
+        minesweeperScanner.set_parallel_scanning(true);
         MinesweeperState state = new MinesweeperState(0, 0, new char[1][1], false);
-        while (continue_computation && !Thread.currentThread().isInterrupted()) {
-            if (!autoplay_iteration(minesweeperScanner, state, frame, interval, time_upper_limit)) {
+        state.set_parallel_search(true);
+        state.set_stop_at_first_tier(true);
+        state.set_gaussian_elimination(true);
+        state.set_incremental(true);
+        while (continue_computation && !token.is_cancelled()) {
+            if (!autoplay_iteration(minesweeperScanner, state, frame, interval, time_upper_limit, guess, token)) {
                 continue_computation = false;
                 break;
             }
         }
     }
 
-    private static void autoplay(JFrame frame, int width, int height, int interval, int time_upper_limit, JButton[] buttons, JButton autoplay_button) {
+    private static void autoplay(JFrame frame, int width, int height, int interval, int time_upper_limit, boolean guess, JButton[] buttons, JButton autoplay_button) {
         prepare_autoplay(buttons, autoplay_button);
         if (null == register) {
             esc_key_cannot_register_warning(frame);
@@ -406,19 +430,7 @@ public class Main {
         } else {
             continue_computation = true;
             computation_stopped_manually = false;
-            Thread workerThread = new Thread(() -> autoplay_thread(frame, width, height, interval, time_upper_limit));
-            new Thread(() -> {
-                while (continue_computation) {
-                    try {
-                        Thread.sleep(1000);
-                    } catch (InterruptedException e) {
-                        break;
-                    }
-                }
-                workerThread.interrupt();
-                SwingUtilities.invokeLater(() -> after_autoplay(frame, buttons, autoplay_button));
-            }).start();
-            workerThread.start();
+            solver_executor.submit(token -> autoplay_thread(frame, width, height, interval, time_upper_limit, guess, token), () -> SwingUtilities.invokeLater(() -> after_autoplay(frame, buttons, autoplay_button)));
         }
     }
 
@@ -445,6 +457,7 @@ public class Main {
             if (continue_computation) {
                 computation_stopped_manually = true;
                 continue_computation = false;
+                solver_executor.cancel();
             }
         });
         JFrame frame = new JFrame("Minesweeper Determinator");
@@ -604,6 +617,9 @@ public class Main {
         interval_inputPanel.add(interval_inputLabel);
         interval_inputPanel.add(interval_textField);
         interval_inputPanel.add(time_unitLabel);
+        JCheckBox guess_checkBox = new JCheckBox("Guess the least risky tile when stuck");
+        guess_checkBox.setFont(smallFont);
+        guess_checkBox.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
         JButton autoplay_button = new JButton();
         initialize_autoplay_button(autoplay_button);
         autoplay_button.setFont(smallFont);
@@ -632,12 +648,12 @@ public class Main {
             int height = get_positive_integer(frame, height_textField, "height");
             int interval = get_milliseconds(frame, interval_textField, "interval");
             if (0 != time_upper_limit && 0 != width && 0 != height && 0 != interval) {
-                autoplay(frame, width, height, interval, time_upper_limit, all_buttons, autoplay_button);
+                autoplay(frame, width, height, interval, time_upper_limit, guess_checkBox.isSelected(), all_buttons, autoplay_button);
             }
         });
         JLabel label_3 = new JLabel("(Press Esc to stop computation)");
         label_3.setFont(smallFont);
-        JComponent[] components = {label_1, label_2, time_inputPanel, radioGroupPanel, width_inputPanel, height_inputPanel, random_move_button, all_moves_button, interval_inputPanel, autoplay_button, label_3};
+        JComponent[] components = {label_1, label_2, time_inputPanel, radioGroupPanel, width_inputPanel, height_inputPanel, random_move_button, all_moves_button, interval_inputPanel, guess_checkBox, autoplay_button, label_3};
         JPanel mainPanel = new JPanel();
         mainPanel.setLayout(new BoxLayout(mainPanel, BoxLayout.Y_AXIS));
         for (JComponent component : components) {
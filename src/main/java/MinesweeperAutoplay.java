@@ -2,8 +2,13 @@ import com.github.kwhat.jnativehook.NativeHookException;
 import com.github.kwhat.jnativehook.keyboard.NativeKeyEvent;
 
 import java.awt.*;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 public class MinesweeperAutoplay {
     private static GlobalHotkeyMouseClicker robot;
@@ -16,15 +21,12 @@ public class MinesweeperAutoplay {
         }
     }
 
-    public static boolean single_move(Pair<Pair<Integer, Integer>, Character> prediction, MinesweeperScanner scanner, MinesweeperState state) {
-        int i = prediction.getFirst().getFirst();
-        int j = prediction.getFirst().getSecond();
+    public static boolean single_move(int i, int j, char target, MinesweeperScanner scanner, MinesweeperState state) {
         char current = state.get_state(i, j);
         int[] grid_coordinates = scanner.get_grid_coordinates(i, j);
         if (grid_coordinates != null) {
             int x = (int) ((grid_coordinates[0] + grid_coordinates[1] + 0.5) / 2.0);
             int y = (int) ((grid_coordinates[2] + grid_coordinates[3] + 0.5) / 2.0);
-            char target = prediction.getSecond();
             if (MinesweeperState.QUESTION_MARK == current) {
                 robot.clickAt(x, y, GlobalHotkeyMouseClicker.MouseButton.RIGHT);
             }
@@ -39,14 +41,51 @@ public class MinesweeperAutoplay {
         }
     }
 
-    public static boolean iteration(ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions, int interval, MinesweeperScanner scanner, MinesweeperState state) {
+    public static boolean single_move(Pair<Pair<Integer, Integer>, Character> prediction, MinesweeperScanner scanner, MinesweeperState state) {
+        return single_move(prediction.getFirst().getFirst(), prediction.getFirst().getSecond(), prediction.getSecond(), scanner, state);
+    }
+
+    // Cancelled through the token or by an interrupt, which stays set for the caller.
+    private static boolean is_stopped(CancellationToken token) {
+        return (null != token && token.is_cancelled()) || Thread.currentThread().isInterrupted();
+    }
+
+    public static boolean iteration(CellPredictions predictions, int interval, MinesweeperScanner scanner, MinesweeperState state, CancellationToken token) {
+        boolean successful = true;
+        for (int k = 0; k < predictions.size(); ++k) {
+            if (is_stopped(token)) {
+                return false;
+            }
+            successful = single_move(predictions.get_row(k), predictions.get_col(k), predictions.get_state(k), scanner, state);
+            try {
+                Thread.sleep(interval);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            if (!successful) {
+                break;
+            }
+        }
+        return successful;
+    }
+
+    public static boolean iteration(CellPredictions predictions, int interval, MinesweeperScanner scanner, MinesweeperState state) {
+        return iteration(predictions, interval, scanner, state, null);
+    }
+
+    public static boolean iteration(ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions, int interval, MinesweeperScanner scanner, MinesweeperState state, CancellationToken token) {
         boolean successful = true;
         for (Pair<Pair<Integer, Integer>, Character> prediction : predictions) {
+            if (is_stopped(token)) {
+                return false;
+            }
             successful = single_move(prediction, scanner, state);
             try {
                 Thread.sleep(interval);
             } catch (InterruptedException e) {
-                break;
+                Thread.currentThread().interrupt();
+                return false;
             }
             if (!successful) {
                 break;
@@ -55,6 +94,46 @@ public class MinesweeperAutoplay {
         return successful;
     }
 
+    public static boolean iteration(ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions, int interval, MinesweeperScanner scanner, MinesweeperState state) {
+        return iteration(predictions, interval, scanner, state, null);
+    }
+
+    public record StreamingResult(CellPredictions predictions, boolean successful) {
+    }
+
+    // Clicks each group of predictions as soon as it is published, while later blocks are still being searched.
+    public static StreamingResult streaming_iteration(MinesweeperState state, Duration budget, CancellationToken token, int interval, MinesweeperScanner scanner) {
+        LinkedBlockingQueue<CellPredictions> queue = new LinkedBlockingQueue<>();
+        state.set_prediction_listener((predictions, tier) -> queue.add(predictions));
+        FutureTask<CellPredictions> search = new FutureTask<>(() -> state.get_cell_predictions(budget, token));
+        Thread.ofVirtual().start(search);
+        boolean successful = true;
+        try {
+            while (true) {
+                if (is_stopped(token)) {
+                    return new StreamingResult(null, false);
+                }
+                CellPredictions predictions = queue.poll(10, TimeUnit.MILLISECONDS);
+                if (null != predictions) {
+                    if (successful) {
+                        successful = iteration(predictions, interval, scanner, state, token);
+                    }
+                } else if (search.isDone() && queue.isEmpty()) {
+                    break;
+                }
+            }
+            return new StreamingResult(search.get(), successful);
+        } catch (InterruptedException e) {
+            token.cancel();
+            Thread.currentThread().interrupt();
+            return new StreamingResult(null, false);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            state.set_prediction_listener(null);
+        }
+    }
+
     public static AutoCloseable register_exit_key(Runnable on_start, Runnable on_exit) {
         try {
             GlobalHotkeyMouseClicker app = new GlobalHotkeyMouseClicker();
@@ -1,5 +1,8 @@
+import java.awt.Rectangle;
 import java.io.File;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
 
 public class MinesweeperScanner {
     public static final int[][] panel_background = {{189, 189, 189}};
@@ -8,7 +11,16 @@ public class MinesweeperScanner {
     private int[] panel_coordinates;
     private int[] remaining_mines_and_times_coordinates;
     private int[] board_coordinates;
+    private static final int LEARNED_CELLS_LIMIT = 1 << 16;
+    private static final ConcurrentHashMap<Long, Character> learned_cells = new ConcurrentHashMap<>();
     private final int[] grid_size;
+    private boolean diff_scanning = true;
+    private boolean fingerprint_lookup = true;
+    private boolean parallel_scanning = false;
+    private int[] hashed_board_coordinates;
+    private long[][] cell_hashes;
+    private char[][] previous_map;
+    private int reclassified_cells;
 
     public MinesweeperScanner(int width, int height) {
         assert width > 0 && height > 0;
@@ -22,17 +34,11 @@ public class MinesweeperScanner {
 
     public static int[] find_panel_coordinates(ScreenData screen) {
         assert screen != null;
-        ArrayList<ArrayList<int[]>> blocks = RGB.find_similar_color_blocks(screen.rgb_array, 0, screen.width, 0, screen.height, panel_background, 10);
+        ArrayList<int[]> blocks = RGB.find_similar_color_block_bounds(screen, 0, screen.width, 0, screen.height, panel_background, 10);
         int max_area = 0;
         int width_l = 0, width_r = screen.width, height_l = 0, height_r = screen.height;
-        for (ArrayList<int[]> block : blocks) {
-            int w_l = Integer.MAX_VALUE, w_r = 0, h_l = Integer.MAX_VALUE, h_r = 0;
-            for (int[] ints : block) {
-                w_l = Math.min(w_l, ints[0]);
-                w_r = Math.max(w_r, ints[0] + 1);
-                h_l = Math.min(h_l, ints[1]);
-                h_r = Math.max(h_r, ints[1] + 1);
-            }
+        for (int[] bounds : blocks) {
+            int w_l = bounds[0], w_r = bounds[1], h_l = bounds[2], h_r = bounds[3];
             int block_area = (w_r - w_l) * (h_r - h_l);
             if (max_area < block_area) {
                 width_l = w_l;
@@ -48,18 +54,12 @@ public class MinesweeperScanner {
     public static int[] find_remaining_mines_and_time_coordinates(ScreenData screen, int[] panel_coordinates) {
         assert screen != null && panel_coordinates != null && panel_coordinates.length == 4;
         assert panel_coordinates[0] < panel_coordinates[1] && panel_coordinates[2] < panel_coordinates[3];
-        ArrayList<ArrayList<int[]>> blocks = RGB.find_similar_color_blocks(screen.rgb_array, panel_coordinates[0], panel_coordinates[1], panel_coordinates[2], panel_coordinates[3], digits_boards_background, 50);
+        ArrayList<int[]> blocks = RGB.find_similar_color_block_bounds(screen, panel_coordinates[0], panel_coordinates[1], panel_coordinates[2], panel_coordinates[3], digits_boards_background, 50);
         int max_area_1 = 0, max_area_2 = 0;
         int width_l_1 = panel_coordinates[0], width_r_1 = panel_coordinates[1], height_l_1 = panel_coordinates[2], height_r_1 = panel_coordinates[3];
         int width_l_2 = panel_coordinates[0], width_r_2 = panel_coordinates[1], height_l_2 = panel_coordinates[2], height_r_2 = panel_coordinates[3];
-        for (ArrayList<int[]> block : blocks) {
-            int w_l = Integer.MAX_VALUE, w_r = 0, h_l = Integer.MAX_VALUE, h_r = 0;
-            for (int[] ints : block) {
-                w_l = Math.min(w_l, ints[0]);
-                w_r = Math.max(w_r, ints[0] + 1);
-                h_l = Math.min(h_l, ints[1]);
-                h_r = Math.max(h_r, ints[1] + 1);
-            }
+        for (int[] bounds : blocks) {
+            int w_l = bounds[0], w_r = bounds[1], h_l = bounds[2], h_r = bounds[3];
             int block_area = (w_r - w_l) * (h_r - h_l);
             if (max_area_2 < block_area) {
                 if (max_area_1 < block_area) {
@@ -87,17 +87,11 @@ public class MinesweeperScanner {
 
     public static int[] find_board_coordinates(ScreenData screen, int[] panel_coordinates) {
         assert screen != null;
-        ArrayList<ArrayList<int[]>> blocks = RGB.find_similar_color_blocks(screen.rgb_array, panel_coordinates[0], panel_coordinates[1], panel_coordinates[2], panel_coordinates[3], board_border, 50);
+        ArrayList<int[]> blocks = RGB.find_similar_color_block_bounds(screen, panel_coordinates[0], panel_coordinates[1], panel_coordinates[2], panel_coordinates[3], board_border, 50);
         int max_area = 0;
         int width_l = 0, width_r = screen.width, height_l = 0, height_r = screen.height;
-        for (ArrayList<int[]> block : blocks) {
-            int w_l = Integer.MAX_VALUE, w_r = 0, h_l = Integer.MAX_VALUE, h_r = 0;
-            for (int[] ints : block) {
-                w_l = Math.min(w_l, ints[0]);
-                w_r = Math.max(w_r, ints[0] + 1);
-                h_l = Math.min(h_l, ints[1]);
-                h_r = Math.max(h_r, ints[1] + 1);
-            }
+        for (int[] bounds : blocks) {
+            int w_l = bounds[0], w_r = bounds[1], h_l = bounds[2], h_r = bounds[3];
             int block_area = (w_r - w_l) * (h_r - h_l);
             if (block_area == (panel_coordinates[1] - panel_coordinates[0]) * (panel_coordinates[3] - panel_coordinates[2])) {
                 continue;
@@ -116,7 +110,7 @@ public class MinesweeperScanner {
         }
         for (int i = 0; i < map.length; ++i) {
             for (int j = 0; j < map[0].length; ++j) {
-                if (RGB.rgb_similar(screen.rgb_array[width_r - i][height_r - j], screen.rgb_array[width_r - 1][height_r - 1], 50)) {
+                if (RGB.rgb_similar(screen.get_rgb(width_r - i, height_r - j), screen.get_rgb(width_r - 1, height_r - 1), 50)) {
                     map[i][j] = false;
                 }
             }
@@ -205,26 +199,113 @@ public class MinesweeperScanner {
         return get_grid_coordinates(board_coordinates, grid_size, i, j);
     }
 
+    public boolean is_diff_scanning() {
+        return diff_scanning;
+    }
+
+    // Keep a hash of every cell's pixels and reclassify only the cells whose pixels changed since the last frame.
+    public void set_diff_scanning(boolean diff_scanning) {
+        this.diff_scanning = diff_scanning;
+        if (!diff_scanning) {
+            hashed_board_coordinates = null;
+            cell_hashes = null;
+            previous_map = null;
+        }
+    }
+
+    // Cells compared against the templates by the last get_map; the others kept their previous classification.
+    public int get_reclassified_cells() {
+        return reclassified_cells;
+    }
+
+    public boolean is_fingerprint_lookup() {
+        return fingerprint_lookup;
+    }
+
+    // Look cells up by the hash of their pixels among the cells classified before, matching templates only on a miss.
+    public void set_fingerprint_lookup(boolean fingerprint_lookup) {
+        this.fingerprint_lookup = fingerprint_lookup;
+    }
+
+    public boolean is_parallel_scanning() {
+        return parallel_scanning;
+    }
+
+    // Classify the columns of the board in parallel.
+    public void set_parallel_scanning(boolean parallel_scanning) {
+        this.parallel_scanning = parallel_scanning;
+    }
+
+    // Identical pixels always match the same template, so the result is learned under the picture's hash.
+    public static char classify_cell(ScreenData grid_picture, long hash) {
+        Character cell = learned_cells.get(hash);
+        if (null == cell) {
+            cell = classify_cell(grid_picture);
+            if (learned_cells.size() >= LEARNED_CELLS_LIMIT) {
+                learned_cells.clear();
+            }
+            learned_cells.put(hash, cell);
+        }
+        return cell;
+    }
+
+    public static char classify_cell(ScreenData grid_picture) {
+        char cell = MinesweeperState.operands[0];
+        double min_distance = Double.MAX_VALUE;
+        for (int k = 0; k < MinesweeperState.operands.length; ++k) {
+            double distance = RGB.picture_average_distance(grid_picture, MinesweeperState.image_screens[k]);
+            if (distance < min_distance) {
+                cell = MinesweeperState.operands[k];
+                min_distance = distance;
+            }
+        }
+        return cell;
+    }
+
+    // Fills column i of map and returns how many of its cells were reclassified; columns touch disjoint state.
+    private int get_map_column(ScreenData screen, int[] board_coordinates, char[][] map, int i) {
+        int reclassified = 0;
+        for (int j = 0; j < grid_size[1]; ++j) {
+            int[] grid_coordinates = get_grid_coordinates(board_coordinates, grid_size, i, j);
+            ScreenData grid_picture = screen.get_region(grid_coordinates[0], grid_coordinates[1], grid_coordinates[2], grid_coordinates[3]);
+            long hash = diff_scanning || fingerprint_lookup ? RGB.picture_hash(grid_picture) : 0;
+            if (diff_scanning) {
+                if (null != previous_map && hash == cell_hashes[i][j]) {
+                    map[i][j] = previous_map[i][j];
+                    continue;
+                }
+                cell_hashes[i][j] = hash;
+            }
+            map[i][j] = fingerprint_lookup ? classify_cell(grid_picture, hash) : classify_cell(grid_picture);
+            ++reclassified;
+        }
+        return reclassified;
+    }
+
     public char[][] get_map(ScreenData screen, int[] board_coordinates, boolean debug) {
-        assert screen != null && MinesweeperState.images != null;
+        assert screen != null && MinesweeperState.image_screens != null;
         assert 4 == board_coordinates.length;
-        int[][][] board_rgb_array = extract_picture_slice(screen.rgb_array, board_coordinates[0], board_coordinates[1], board_coordinates[2], board_coordinates[3]);
         if (debug) {
-            ScreenCapture.save_array_to_file(board_rgb_array, "Debug/captured_board.png", "png");
+            ScreenCapture.save_screen_to_file(screen.get_region(board_coordinates[0], board_coordinates[1], board_coordinates[2], board_coordinates[3]), "Debug/captured_board.png", "png");
+        }
+        if (diff_scanning) {
+            int[] absolute_board_coordinates = translate_coordinates(board_coordinates, screen.origin_x, screen.origin_y);
+            if (!Arrays.equals(absolute_board_coordinates, hashed_board_coordinates)) {
+                hashed_board_coordinates = absolute_board_coordinates;
+                cell_hashes = new long[grid_size[0]][grid_size[1]];
+                previous_map = null;
+            }
         }
         char[][] map = new char[grid_size[0]][grid_size[1]];
-        for (int i = 0; i < grid_size[0]; ++i) {
-            for (int j = 0; j < grid_size[1]; ++j) {
-                int[] grid_coordinates = get_grid_coordinates(board_coordinates, grid_size, i, j);
-                int[][][] grid_picture = extract_picture_slice(screen.rgb_array, grid_coordinates[0], grid_coordinates[1], grid_coordinates[2], grid_coordinates[3]);
-                double min_distance = Double.MAX_VALUE;
-                for (int k = 0; k < MinesweeperState.operands.length; ++k) {
-                    double distance = RGB.picture_average_distance(grid_picture, MinesweeperState.images[k]);
-                    if (distance < min_distance) {
-                        map[i][j] = MinesweeperState.operands[k];
-                        min_distance = distance;
-                    }
-                }
+        IntStream columns = IntStream.range(0, grid_size[0]);
+        if (parallel_scanning) {
+            columns = columns.parallel();
+        }
+        reclassified_cells = columns.map(i -> get_map_column(screen, board_coordinates, map, i)).sum();
+        if (diff_scanning) {
+            previous_map = new char[grid_size[0]][];
+            for (int i = 0; i < grid_size[0]; ++i) {
+                previous_map[i] = map[i].clone();
             }
         }
         return map;
@@ -235,7 +316,7 @@ public class MinesweeperScanner {
         int[] digits = new int[3];
         int side_length = (width_r - width_l) / number_of_digits;
         for (int i = 0; i < number_of_digits; ++i) {
-            int[][][] slice = extract_picture_slice(screen.rgb_array, width_l + i * side_length, width_l + (i + 1) * side_length, height_l, height_r);
+            ScreenData slice = screen.get_region(width_l + i * side_length, width_l + (i + 1) * side_length, height_l, height_r);
             double min_distance = Double.MAX_VALUE;
             for (int j = 0; j < MinesweeperState.digits.length; ++j) {
                 double distance = RGB.picture_average_distance(slice, MinesweeperState.digits[j]);
@@ -258,20 +339,83 @@ public class MinesweeperScanner {
         return integer;
     }
 
+    // Shifts coordinates laid out as {width_l, width_r, height_l, height_r, ...}.
+    private static int[] translate_coordinates(int[] coordinates, int x, int y) {
+        int[] translated = new int[coordinates.length];
+        for (int k = 0; k < coordinates.length; ++k) {
+            translated[k] = coordinates[k] + (0 == (k & 2) ? x : y);
+        }
+        return translated;
+    }
+
+    public boolean is_calibrated() {
+        return null != panel_coordinates && null != remaining_mines_and_times_coordinates && null != board_coordinates;
+    }
+
+    public void reset_calibration() {
+        panel_coordinates = null;
+        remaining_mines_and_times_coordinates = null;
+        board_coordinates = null;
+    }
+
+    private static boolean pixel_similar_to_any(ScreenData screen, int x, int y, int[][] colors, double threshold) {
+        x -= screen.origin_x;
+        y -= screen.origin_y;
+        return x >= 0 && x < screen.width && y >= 0 && y < screen.height && RGB.rgb_similar_to_any(screen.get_rgb(x, y), RGB.pack(colors), threshold);
+    }
+
+    // The board border must still surround the board and both counters must still sit where they were found.
+    public boolean calibration_matches(ScreenData screen) {
+        if (!is_calibrated()) {
+            return false;
+        }
+        int middle_x = (board_coordinates[0] + board_coordinates[1]) / 2;
+        int middle_y = (board_coordinates[2] + board_coordinates[3]) / 2;
+        if (!pixel_similar_to_any(screen, board_coordinates[0] - 1, middle_y, board_border, 50) || !pixel_similar_to_any(screen, board_coordinates[1], middle_y, board_border, 50) || !pixel_similar_to_any(screen, middle_x, board_coordinates[2] - 1, board_border, 50) || !pixel_similar_to_any(screen, middle_x, board_coordinates[3], board_border, 50)) {
+            return false;
+        }
+        for (int k = 0; k < 8; k += 4) {
+            int[] counter = Arrays.copyOfRange(remaining_mines_and_times_coordinates, k, k + 4);
+            if (!pixel_similar_to_any(screen, counter[0], counter[2], digits_boards_background, 50) || !pixel_similar_to_any(screen, counter[1] - 1, counter[3] - 1, digits_boards_background, 50) || !pixel_similar_to_any(screen, counter[0] - 1, counter[2], panel_background, 10)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Once calibrated only the panel is captured; a capture that no longer matches drops the calibration and the
+    // whole screen is captured instead, to be calibrated again by scan.
+    public ScreenData capture_screen() {
+        if (is_calibrated()) {
+            ScreenData screen = ScreenCapture.capture_screen(new Rectangle(panel_coordinates[0], panel_coordinates[2], panel_coordinates[1] - panel_coordinates[0], panel_coordinates[3] - panel_coordinates[2]));
+            if (null != screen && calibration_matches(screen)) {
+                return screen;
+            }
+            reset_calibration();
+        }
+        return ScreenCapture.capture_screen();
+    }
+
+    // Coordinates are kept in screen coordinates, so they stay valid for captures of only a part of the screen.
     public MinesweeperState scan(ScreenData screen, boolean debug) throws IllegalMapException {
         assert screen != null;
+        if (is_calibrated() && !calibration_matches(screen)) {
+            reset_calibration();
+        }
         if (null == panel_coordinates) {
-            panel_coordinates = find_panel_coordinates(screen);
+            panel_coordinates = translate_coordinates(find_panel_coordinates(screen), screen.origin_x, screen.origin_y);
         }
+        int[] local_panel_coordinates = translate_coordinates(panel_coordinates, -screen.origin_x, -screen.origin_y);
         if (null == remaining_mines_and_times_coordinates) {
-            remaining_mines_and_times_coordinates = find_remaining_mines_and_time_coordinates(screen, panel_coordinates);
+            remaining_mines_and_times_coordinates = translate_coordinates(find_remaining_mines_and_time_coordinates(screen, local_panel_coordinates), screen.origin_x, screen.origin_y);
         }
-        int remaining_mines = convert_digits_to_integer(get_digits(screen, remaining_mines_and_times_coordinates[0], remaining_mines_and_times_coordinates[1], remaining_mines_and_times_coordinates[2], remaining_mines_and_times_coordinates[3], 3));
-        int time_passed = convert_digits_to_integer(get_digits(screen, remaining_mines_and_times_coordinates[4], remaining_mines_and_times_coordinates[5], remaining_mines_and_times_coordinates[6], remaining_mines_and_times_coordinates[7], 3));
+        int[] counters = translate_coordinates(remaining_mines_and_times_coordinates, -screen.origin_x, -screen.origin_y);
+        int remaining_mines = convert_digits_to_integer(get_digits(screen, counters[0], counters[1], counters[2], counters[3], 3));
+        int time_passed = convert_digits_to_integer(get_digits(screen, counters[4], counters[5], counters[6], counters[7], 3));
         if (null == board_coordinates) {
-            board_coordinates = find_board_coordinates(screen, panel_coordinates);
+            board_coordinates = translate_coordinates(find_board_coordinates(screen, local_panel_coordinates), screen.origin_x, screen.origin_y);
         }
-        char[][] map = get_map(screen, board_coordinates, debug);
+        char[][] map = get_map(screen, translate_coordinates(board_coordinates, -screen.origin_x, -screen.origin_y), debug);
         return new MinesweeperState(time_passed, remaining_mines, map);
     }
 
@@ -1,11 +1,12 @@
 import java.awt.image.BufferedImage;
+import java.io.Serial;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.time.Duration;
 import java.util.*;
-
-final class IllegalMapException extends IllegalArgumentException {
-    public IllegalMapException(String message) {
-        super(message);
-    }
-}
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public class MinesweeperState {
     static final char BLANK = '*';
@@ -31,10 +32,12 @@ public class MinesweeperState {
     static final int[][] neighborhood = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 0}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
     static final int[][] unit_vectors = {{-1, -1}, {-1, 0}, {-1, 1}, {0, -1}, {0, 1}, {1, -1}, {1, 0}, {1, 1}};
     static int[][][][] images;
-    static int[][][][] digits;
+    static ScreenData[] image_screens;
+    static ScreenData[] digits;
     private int time_passed, remaining_mines, nrows, ncols;
     private char[][] map;
     private Pair<Integer, Integer>[][] point_pool;
+    private BoardTopology topology;
 
     static {
         load_images();
@@ -44,21 +47,23 @@ public class MinesweeperState {
     private static void load_images() {
         if (null == images) {
             images = new int[operands.length][][][];
+            image_screens = new ScreenData[operands.length];
             for (int i = 0; i < operands.length; ++i) {
                 BufferedImage image = ScreenCapture.load_image_from_file("images/" + image_names[i] + ".png");
                 assert image != null;
                 images[i] = ScreenCapture.convert_image_to_rgb_array(image);
+                image_screens[i] = ScreenCapture.convert_image_to_screen(image);
             }
         }
     }
 
     private static void load_digits() {
         if (null == digits) {
-            digits = new int[digit_names.length][][][];
+            digits = new ScreenData[digit_names.length];
             for (int i = 0; i < digit_names.length; ++i) {
                 BufferedImage digit = ScreenCapture.load_image_from_file("images/" + digit_names[i] + ".png");
                 assert digit != null;
-                digits[i] = ScreenCapture.convert_image_to_rgb_array(digit);
+                digits[i] = ScreenCapture.convert_image_to_screen(digit);
             }
         }
     }
@@ -75,6 +80,7 @@ public class MinesweeperState {
         nrows = map.length;
         ncols = map[0].length;
         point_pool = new Pair[nrows][ncols];
+        topology = BoardTopology.get(nrows, ncols);
     }
 
     public MinesweeperState(int time_passed, int remaining_mines, char[][] map) {
@@ -92,6 +98,7 @@ public class MinesweeperState {
         ncols = map[0].length;
         if (point_pool.length != nrows || point_pool[0].length != ncols) {
             point_pool = new Pair[nrows][ncols];
+            topology = BoardTopology.get(nrows, ncols);
         }
     }
 
@@ -202,21 +209,18 @@ public class MinesweeperState {
         return c - '0';
     }
 
-    public static boolean check_number_valid(char[][] map, int i, int j, boolean force_finished) {
+    private static boolean check_number_valid(BoardTopology topology, char[][] map, int i, int j, boolean force_finished) {
         if (!is_number(map[i][j])) {
             return true;
         }
         int mines = 0;
         int blanks = 0;
-        for (int[] vector : unit_vectors) {
-            int new_i = i + vector[0];
-            int new_j = j + vector[1];
-            if (new_i >= 0 && new_i < map.length && new_j >= 0 && new_j < map[0].length) {
-                if (MINE_FLAG == map[new_i][new_j] || MINE_EXPLODED == map[new_i][new_j] || MINE_UNFOUND == map[new_i][new_j]) {
-                    ++mines;
-                } else if (is_unfinished_operand(map[new_i][new_j]) || MINE_WRONGLY_FLAGGED == map[new_i][new_j]) {
-                    ++blanks;
-                }
+        for (int k = topology.get_start(i, j), end = topology.get_end(i, j); k < end; ++k) {
+            char c = map[topology.get_neighbor_row(k)][topology.get_neighbor_col(k)];
+            if (MINE_FLAG == c || MINE_EXPLODED == c || MINE_UNFOUND == c) {
+                ++mines;
+            } else if (is_unfinished_operand(c) || MINE_WRONGLY_FLAGGED == c) {
+                ++blanks;
             }
         }
         if (force_finished && mines != to_number(map[i][j])) {
@@ -225,8 +229,12 @@ public class MinesweeperState {
         return mines <= to_number(map[i][j]) && mines + blanks >= to_number(map[i][j]);
     }
 
+    public static boolean check_number_valid(char[][] map, int i, int j, boolean force_finished) {
+        return check_number_valid(BoardTopology.get(map), map, i, j, force_finished);
+    }
+
     public boolean check_number_valid(int i, int j, boolean force_finished) {
-        return check_number_valid(map, i, j, force_finished);
+        return check_number_valid(topology, map, i, j, force_finished);
     }
 
     public static boolean check_map_valid(char[][] map, int remaining_mines, boolean force_finished) {
@@ -234,6 +242,7 @@ public class MinesweeperState {
             return false;
         }
         int blanks = 0;
+        BoardTopology topology = BoardTopology.get(map);
         for (int i = 0; i < map.length; i++) {
             for (int j = 0; j < map[0].length; j++) {
                 if (is_unfinished_operand(map[i][j])) {
@@ -245,7 +254,7 @@ public class MinesweeperState {
                 if (!is_valid_operand(map[i][j])) {
                     return false;
                 }
-                if (!check_number_valid(map, i, j, force_finished)) {
+                if (!check_number_valid(topology, map, i, j, force_finished)) {
                     return false;
                 }
             }
@@ -257,12 +266,43 @@ public class MinesweeperState {
         return check_map_valid(map, remaining_mines, force_finished);
     }
 
+    public static ArrayList<Pair<Integer, Integer>> get_numbers_in_domain(char[][] map, int i, int j) {
+        BoardTopology topology = BoardTopology.get(map);
+        ArrayList<Pair<Integer, Integer>> numbers = new ArrayList<>();
+        for (int k = topology.get_start(i, j), end = topology.get_end(i, j); k < end; ++k) {
+            int new_i = topology.get_neighbor_row(k);
+            int new_j = topology.get_neighbor_col(k);
+            if (is_number(map[new_i][new_j])) {
+                numbers.add(new Pair<>(new_i, new_j));
+            }
+        }
+        return numbers;
+    }
+
+    public static int get_numbers_in_domain(BoardTopology topology, char[][] map, int cell, int[] numbers) {
+        int count = 0;
+        for (int k = topology.get_start(cell), end = topology.get_end(cell); k < end; ++k) {
+            if (is_number(map[topology.get_neighbor_row(k)][topology.get_neighbor_col(k)])) {
+                numbers[count++] = topology.get_neighbor(k);
+            }
+        }
+        return count;
+    }
+
+    public static int get_numbers_in_domain(char[][] map, int cell, int[] numbers) {
+        return get_numbers_in_domain(BoardTopology.get(map), map, cell, numbers);
+    }
+
+    public int get_numbers_in_domain(int cell, int[] numbers) {
+        return get_numbers_in_domain(topology, map, cell, numbers);
+    }
+
     public ArrayList<Pair<Integer, Integer>> get_numbers_in_domain(int i, int j) {
         ArrayList<Pair<Integer, Integer>> numbers = new ArrayList<>();
-        for (int[] unit_vector : unit_vectors) {
-            int new_i = i + unit_vector[0];
-            int new_j = j + unit_vector[1];
-            if (new_i >= 0 && new_i < map.length && new_j >= 0 && new_j < map[0].length && is_number(map[new_i][new_j])) {
+        for (int k = topology.get_start(i, j), end = topology.get_end(i, j); k < end; ++k) {
+            int new_i = topology.get_neighbor_row(k);
+            int new_j = topology.get_neighbor_col(k);
+            if (is_number(map[new_i][new_j])) {
                 initialize_point_pool_position(new_i, new_j);
                 numbers.add(point_pool[new_i][new_j]);
             }
@@ -360,355 +400,1124 @@ public class MinesweeperState {
         return get_map_rgb_array(new_map);
     }
 
-    private char[][] temp_map;
-    private HashSet<Character>[] possibility_map;
-    private HashSet<Integer> final_remaining_mines_possibilities;
     private ArrayList<Pair<Integer, Integer>> all_points;
     private ArrayList<Pair<Integer, Integer>> all_blanks;
     private int mines_already_determined;
     private volatile boolean force_stopped = false;
+    private volatile boolean has_deadline = false;
+    private volatile long deadline;
+    private volatile CancellationToken cancellation_token;
+    private boolean parallel_search = false;
+    private boolean local_rules = true;
+    private boolean stop_at_first_tier = false;
+    private boolean gaussian_elimination = false;
+    private boolean incremental = false;
+    private VariableOrdering variable_ordering = VariableOrdering.BFS;
+    private boolean decomposition_search = true;
+    private SearchEngine search_engine = SearchEngine.SLACK_COUNTERS;
+    private boolean[][] resolved_tag;
+    private final ArrayList<Pair<Pair<Integer, Integer>, Character>> resolved_predictions = new ArrayList<>();
+    private int resolved_mines;
+    private final ArrayList<PredictionTier> prediction_tiers = new ArrayList<>();
+    private SearchContext search_context;
+    private static final ForkJoinPool search_pool = ForkJoinPool.commonPool();
 
-    private boolean check_temp_map_number_valid(int i, int j, boolean force_finished) {
-        int mines = 0;
-        int blanks = 0;
-        for (int[] vector : unit_vectors) {
-            int new_i = i + vector[0];
-            int new_j = j + vector[1];
-            if (new_i >= 0 && new_i < temp_map.length && new_j >= 0 && new_j < temp_map[0].length) {
-                if (MINE_FLAG == temp_map[new_i][new_j]) {
-                    ++mines;
-                } else if (BLANK == temp_map[new_i][new_j]) {
-                    ++blanks;
-                }
-            }
+    public boolean is_parallel_search() {
+        return parallel_search;
+    }
+
+    public void set_parallel_search(boolean parallel_search) {
+        this.parallel_search = parallel_search;
+    }
+
+    public boolean is_local_rules() {
+        return local_rules;
+    }
+
+    public void set_local_rules(boolean local_rules) {
+        this.local_rules = local_rules;
+    }
+
+    public boolean is_stop_at_first_tier() {
+        return stop_at_first_tier;
+    }
+
+    // Return as soon as one tier produces predictions instead of resolving the whole board.
+    public void set_stop_at_first_tier(boolean stop_at_first_tier) {
+        this.stop_at_first_tier = stop_at_first_tier;
+    }
+
+    public boolean is_gaussian_elimination() {
+        return gaussian_elimination;
+    }
+
+    // Let Gaussian elimination settle a block before searching it; a block it forces any cell in is not searched.
+    public void set_gaussian_elimination(boolean gaussian_elimination) {
+        this.gaussian_elimination = gaussian_elimination;
+    }
+
+    public boolean is_incremental() {
+        return incremental;
+    }
+
+    // Keep block search results between calls and reuse them for blocks whose surroundings did not change.
+    public void set_incremental(boolean incremental) {
+        this.incremental = incremental;
+        if (!incremental) {
+            block_cache = null;
+            previous_block_cache = null;
         }
-        if (force_finished && mines != to_number(temp_map[i][j])) {
-            return false;
+    }
+
+    public boolean is_decomposition_search() {
+        return decomposition_search;
+    }
+
+    // Solve long, thin blocks by dynamic programming over a path decomposition instead of backtracking.
+    public void set_decomposition_search(boolean decomposition_search) {
+        this.decomposition_search = decomposition_search;
+    }
+
+    public enum SearchEngine {
+        BOARD_SCAN, SLACK_COUNTERS
+    }
+
+    public SearchEngine get_search_engine() {
+        return search_engine;
+    }
+
+    // How the backtracking search checks an assignment: BOARD_SCAN recounts the cells around each number on the
+    // board, SLACK_COUNTERS keeps the mines each number still needs and its free cells, updated per assignment.
+    public void set_search_engine(SearchEngine search_engine) {
+        this.search_engine = search_engine;
+    }
+
+    public enum VariableOrdering {
+        BFS, MOST_CONSTRAINED, SMALLEST_SLACK, TREE_DECOMPOSITION
+    }
+
+    public VariableOrdering get_variable_ordering() {
+        return variable_ordering;
+    }
+
+    // Order in which the cells of each block are assigned during the search.
+    public void set_variable_ordering(VariableOrdering variable_ordering) {
+        this.variable_ordering = variable_ordering;
+    }
+
+    public enum PredictionTier {
+        MINE_COUNT, SINGLE_NUMBER, NUMBER_PAIR, GAUSSIAN, SEARCH
+    }
+
+    // The i-th entry is the tier that produced the i-th entry of the last predictions.
+    public ArrayList<PredictionTier> get_prediction_tiers() {
+        return new ArrayList<>(prediction_tiers);
+    }
+
+    // Called with each group of predictions as soon as it is certain, possibly from search worker threads.
+    @FunctionalInterface
+    public interface PredictionListener {
+        void on_predictions(CellPredictions predictions, PredictionTier tier);
+    }
+
+    private volatile PredictionListener prediction_listener;
+
+    public PredictionListener get_prediction_listener() {
+        return prediction_listener;
+    }
+
+    public void set_prediction_listener(PredictionListener prediction_listener) {
+        this.prediction_listener = prediction_listener;
+    }
+
+    private void publish_predictions(CellPredictions predictions, int start, PredictionTier tier) {
+        PredictionListener listener = prediction_listener;
+        if (null != listener && start < predictions.size()) {
+            listener.on_predictions(predictions.sub_predictions(start, predictions.size()), tier);
         }
-        return mines <= to_number(temp_map[i][j]) && mines + blanks >= to_number(temp_map[i][j]);
     }
 
-    private boolean check_temp_map_position_valid(int i, int j, boolean force_finished) {
-        for (int[] unit_vector : unit_vectors) {
-            int number_x = i + unit_vector[0];
-            int number_y = j + unit_vector[1];
-            if (number_x >= 0 && number_x < nrows && number_y >= 0 && number_y < ncols && is_number(map[number_x][number_y])) {
-                if (!check_temp_map_number_valid(number_x, number_y, force_finished)) {
-                    return false;
-                }
-            }
+    private void tag_predictions(CellPredictions predictions, PredictionTier tier, boolean publish) {
+        int start = prediction_tiers.size();
+        while (prediction_tiers.size() < predictions.size()) {
+            prediction_tiers.add(tier);
         }
-        return true;
+        if (publish) {
+            publish_predictions(predictions, start, tier);
+        }
+    }
+
+    private void tag_predictions(CellPredictions predictions, PredictionTier tier) {
+        tag_predictions(predictions, tier, true);
+    }
+
+    public record SearchStatistics(long expanded_nodes, long abandoned_blocks, long skipped_branches, double skipped_leaves_bound, long reused_blocks) {
+    }
+
+    private long expanded_nodes;
+    private long abandoned_blocks;
+    private long skipped_branches;
+    private double skipped_leaves_bound;
+    private long reused_blocks;
+
+    private synchronized void collect_search_statistics(long expanded_nodes, boolean abandoned, long skipped_branches, double skipped_leaves_bound) {
+        this.expanded_nodes += expanded_nodes;
+        if (abandoned) {
+            ++abandoned_blocks;
+        }
+        this.skipped_branches += skipped_branches;
+        this.skipped_leaves_bound += skipped_leaves_bound;
+    }
+
+    public synchronized SearchStatistics get_search_statistics() {
+        return new SearchStatistics(expanded_nodes, abandoned_blocks, skipped_branches, skipped_leaves_bound, reused_blocks);
     }
 
-    private boolean check_final_status_valid(int remaining_mines, int remaining_blanks, boolean force_finished) {
+    private synchronized void count_reused_block() {
+        ++reused_blocks;
+    }
+
+    private static final byte SAFE_POSSIBLE = 1;
+    private static final byte MINE_POSSIBLE = 2;
+    private static final byte BOTH_POSSIBLE = SAFE_POSSIBLE | MINE_POSSIBLE;
+    private static final int MIN_DECOMPOSITION_CELLS = 16;
+
+    private static boolean check_final_status_valid(int remaining_mines, int remaining_blanks, boolean force_finished) {
         if (force_finished && (remaining_mines != 0 || remaining_blanks != 0)) {
             return false;
         }
         return 0 <= remaining_mines && remaining_mines <= remaining_blanks;
     }
 
-    private boolean quick_set_and_check_valid(ArrayList<Pair<Integer, Integer>> all_points, int start_index, char state) {
-        for (int i = start_index; i < all_points.size(); ++i) {
-            Pair<Integer, Integer> point = all_points.get(i);
-            int point_x = point.getFirst();
-            int point_y = point.getSecond();
-            temp_map[point_x][point_y] = state;
-            if (!check_temp_map_position_valid(point_x, point_y, false)) {
+    private final class SearchContext {
+        private BitBoard board;
+        private byte[] possibility_masks;
+        private BitSet final_remaining_mines_possibilities;
+        private int single_valued_cells;
+        private boolean mine_counts_needed = true;
+        private int[] stack_point_index;
+        private int[] stack_remaining_mines;
+        private int[] stack_stage;
+        private int[] stack_x;
+        private int[] stack_y;
+        private boolean counting = false;
+        private int search_remaining_mines;
+        private long[] mine_count_histogram;
+        private long[][] cell_mine_tallies;
+        private BitSet block_mine_counts = new BitSet();
+        private boolean search_abandoned;
+        private int stop_poll = 0;
+        private int[] number_ids;
+        private int[][] slack_cell_numbers;
+        private int[] slack_needed;
+        private int[] slack_free;
+
+        private boolean stopped() {
+            return force_stopped || (0 == (++stop_poll & STOP_POLL_MASK) && execution_expired());
+        }
+
+        private boolean check_board_number_valid(int i, int j, boolean force_finished) {
+            int mines = board.count_mines_around(i, j);
+            int blanks = board.count_unknowns_around(i, j);
+            int number = board.get_number(i, j);
+            if (force_finished && mines != number) {
                 return false;
             }
+            return mines <= number && mines + blanks >= number;
         }
-        return true;
-    }
 
-    private void quick_reset(ArrayList<Pair<Integer, Integer>> all_points, int start_index) {
-        for (int i = start_index; i < all_points.size(); ++i) {
-            Pair<Integer, Integer> point = all_points.get(i);
-            temp_map[point.getFirst()][point.getSecond()] = BLANK;
+        private boolean check_board_position_valid(int i, int j, boolean force_finished) {
+            int numbers = board.get_numbers_around(i, j);
+            while (0 != numbers) {
+                int bit = Integer.numberOfTrailingZeros(numbers);
+                numbers &= numbers - 1;
+                if (!check_board_number_valid(i + bit / 3 - 1, j + bit % 3 - 1, force_finished)) {
+                    return false;
+                }
+            }
+            return true;
         }
-    }
 
-    private void search(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int point_index, int remaining_mines, int number_of_blanks, boolean force_finished) {
-        if (force_stopped) {
-            return;
+        private void set_board_state(int i, int j, char state) {
+            if (MINE_FLAG == state) {
+                board.set_mine(i, j);
+            } else {
+                board.set_safe(i, j);
+            }
+        }
+
+        private void record_possibilities(ArrayList<Pair<Integer, Integer>> all_points, int base_offset) {
+            if (0 == single_valued_cells) {
+                return;
+            }
+            for (int i = 0; i < all_points.size(); ++i) {
+                Pair<Integer, Integer> point = all_points.get(i);
+                byte possibility = board.is_mine(point.getFirst(), point.getSecond()) ? MINE_POSSIBLE : SAFE_POSSIBLE;
+                byte mask = possibility_masks[base_offset + i];
+                if (0 == (mask & possibility)) {
+                    mask |= possibility;
+                    possibility_masks[base_offset + i] = mask;
+                    if (BOTH_POSSIBLE == mask) {
+                        --single_valued_cells;
+                    }
+                }
+            }
         }
-        if (point_index == all_points.size()) {
-            if (check_final_status_valid(remaining_mines, number_of_blanks - all_points.size(), force_finished)) {
-                for (int i = 0; i < all_points.size(); ++i) {
-                    Pair<Integer, Integer> point = all_points.get(i);
-                    possibility_map[base_offset + i].add(temp_map[point.getFirst()][point.getSecond()]);
+
+        private boolean quick_set_and_check_valid(ArrayList<Pair<Integer, Integer>> all_points, int start_index, char state) {
+            for (int i = start_index; i < all_points.size(); ++i) {
+                Pair<Integer, Integer> point = all_points.get(i);
+                int point_x = point.getFirst();
+                int point_y = point.getSecond();
+                set_board_state(point_x, point_y, state);
+                if (!check_board_position_valid(point_x, point_y, false)) {
+                    return false;
                 }
-                final_remaining_mines_possibilities.add(remaining_mines);
             }
-        } else if (0 == remaining_mines) {
-            if (quick_set_and_check_valid(all_points, point_index, ZERO)) {
-                search(all_points, base_offset, all_points.size(), 0, number_of_blanks, force_finished);
+            return true;
+        }
+
+        private void quick_reset(ArrayList<Pair<Integer, Integer>> all_points, int start_index) {
+            for (int i = start_index; i < all_points.size(); ++i) {
+                Pair<Integer, Integer> point = all_points.get(i);
+                board.set_unknown(point.getFirst(), point.getSecond());
             }
-            quick_reset(all_points, point_index);
-        } else if (number_of_blanks - point_index == remaining_mines) {
-            if (quick_set_and_check_valid(all_points, point_index, MINE_FLAG)) {
-                search(all_points, base_offset, all_points.size(), remaining_mines - (all_points.size() - point_index), number_of_blanks, force_finished);
+        }
+
+        private void search(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int point_index, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            if (stopped()) {
+                return;
             }
-            quick_reset(all_points, point_index);
-        } else {
-            int x = all_points.get(point_index).getFirst();
-            int y = all_points.get(point_index).getSecond();
-            temp_map[x][y] = ZERO;
-            if (check_temp_map_position_valid(x, y, false)) {
-                search(all_points, base_offset, point_index + 1, remaining_mines, number_of_blanks, force_finished);
-            }
-            temp_map[x][y] = MINE_FLAG;
-            if (check_temp_map_position_valid(x, y, false)) {
-                search(all_points, base_offset, point_index + 1, remaining_mines - 1, number_of_blanks, force_finished);
-            }
-            temp_map[x][y] = BLANK;
-        }
-    }
-
-    private int[] stack_point_index;
-    private int[] stack_remaining_mines;
-    private int[] stack_stage;
-    private int[] stack_x;
-    private int[] stack_y;
-
-    private void initialize_search_stack(int max_depth) {
-        stack_point_index = new int[max_depth];
-        stack_remaining_mines = new int[max_depth];
-        stack_stage = new int[max_depth];
-        stack_x = new int[max_depth];
-        stack_y = new int[max_depth];
-    }
-
-    private void search_iterative(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
-        int max_depth = all_points.size() + 1;
-        if (null == stack_point_index) {
-            initialize_search_stack(max_depth);
-        } else if (stack_point_index.length < max_depth) {
-            int length = stack_point_index.length;
-            while (length < max_depth) {
-                length <<= 1;
-            }
-            initialize_search_stack(length);
-        }
-        int stack_pointer = 0;
-        stack_point_index[stack_pointer] = 0;
-        stack_remaining_mines[stack_pointer] = remaining_mines;
-        stack_stage[stack_pointer] = 0;
-        while (stack_pointer >= 0) {
-            int cur_point_index = stack_point_index[stack_pointer];
-            int cur_remaining_mines = stack_remaining_mines[stack_pointer];
-            if (stack_stage[stack_pointer] == 0) {
-                if (force_stopped) {
-                    --stack_pointer;
-                    continue;
+            if (point_index == all_points.size()) {
+                if (check_final_status_valid(remaining_mines, number_of_blanks - all_points.size(), force_finished)) {
+                    record_possibilities(all_points, base_offset);
+                    final_remaining_mines_possibilities.set(remaining_mines);
+                }
+            } else if (0 == remaining_mines) {
+                if (quick_set_and_check_valid(all_points, point_index, ZERO)) {
+                    search(all_points, base_offset, all_points.size(), 0, number_of_blanks, force_finished);
+                }
+                quick_reset(all_points, point_index);
+            } else if (number_of_blanks - point_index == remaining_mines) {
+                if (quick_set_and_check_valid(all_points, point_index, MINE_FLAG)) {
+                    search(all_points, base_offset, all_points.size(), remaining_mines - (all_points.size() - point_index), number_of_blanks, force_finished);
                 }
-                if (cur_point_index == all_points.size()) {
-                    if (check_final_status_valid(cur_remaining_mines, number_of_blanks - all_points.size(), force_finished)) {
-                        for (int i = 0; i < all_points.size(); ++i) {
-                            Pair<Integer, Integer> p = all_points.get(i);
-                            possibility_map[base_offset + i].add(temp_map[p.getFirst()][p.getSecond()]);
+                quick_reset(all_points, point_index);
+            } else {
+                int x = all_points.get(point_index).getFirst();
+                int y = all_points.get(point_index).getSecond();
+                board.set_safe(x, y);
+                if (check_board_position_valid(x, y, false)) {
+                    search(all_points, base_offset, point_index + 1, remaining_mines, number_of_blanks, force_finished);
+                }
+                board.set_mine(x, y);
+                if (check_board_position_valid(x, y, false)) {
+                    search(all_points, base_offset, point_index + 1, remaining_mines - 1, number_of_blanks, force_finished);
+                }
+                board.set_unknown(x, y);
+            }
+        }
+
+        private void initialize_search_stack(int max_depth) {
+            stack_point_index = new int[max_depth];
+            stack_remaining_mines = new int[max_depth];
+            stack_stage = new int[max_depth];
+            stack_x = new int[max_depth];
+            stack_y = new int[max_depth];
+        }
+
+        private void ensure_search_stack(int max_depth) {
+            if (null == stack_point_index) {
+                initialize_search_stack(max_depth);
+            } else if (stack_point_index.length < max_depth) {
+                int length = stack_point_index.length;
+                while (length < max_depth) {
+                    length <<= 1;
+                }
+                initialize_search_stack(length);
+            }
+        }
+
+        private boolean block_undetermined() {
+            return !counting && 0 == single_valued_cells && (!mine_counts_needed || final_remaining_mines_possibilities.cardinality() > 1);
+        }
+
+        private void initialize_counting(ArrayList<Pair<Integer, Integer>> target_points) {
+            counting = true;
+            mine_count_histogram = new long[target_points.size() + 1];
+            cell_mine_tallies = new long[target_points.size()][target_points.size() + 1];
+        }
+
+        private void count_configuration(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int block_mines) {
+            ++mine_count_histogram[block_mines];
+            for (int i = 0; i < all_points.size(); ++i) {
+                Pair<Integer, Integer> p = all_points.get(i);
+                if (board.is_mine(p.getFirst(), p.getSecond())) {
+                    ++cell_mine_tallies[base_offset + i][block_mines];
+                }
+            }
+        }
+
+        private void search_iterative(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            search_remaining_mines = remaining_mines;
+            single_valued_cells = all_points.size();
+            block_mine_counts.clear();
+            boolean abandoned = false;
+            long expanded_nodes = 0;
+            long skipped_branches = 0;
+            double skipped_leaves_bound = 0;
+            ensure_search_stack(all_points.size() + 1);
+            int stack_pointer = 0;
+            stack_point_index[stack_pointer] = 0;
+            stack_remaining_mines[stack_pointer] = remaining_mines;
+            stack_stage[stack_pointer] = 0;
+            while (stack_pointer >= 0) {
+                int cur_point_index = stack_point_index[stack_pointer];
+                int cur_remaining_mines = stack_remaining_mines[stack_pointer];
+                if (stack_stage[stack_pointer] == 0) {
+                    if (stopped()) {
+                        --stack_pointer;
+                        continue;
+                    }
+                    if (abandoned || block_undetermined()) {
+                        abandoned = true;
+                        ++skipped_branches;
+                        skipped_leaves_bound += Math.scalb(1.0, all_points.size() - cur_point_index);
+                        --stack_pointer;
+                        continue;
+                    }
+                    ++expanded_nodes;
+                    if (cur_point_index == all_points.size()) {
+                        if (check_final_status_valid(cur_remaining_mines, number_of_blanks - all_points.size(), force_finished)) {
+                            record_possibilities(all_points, base_offset);
+                            final_remaining_mines_possibilities.set(cur_remaining_mines);
+                            block_mine_counts.set(search_remaining_mines - cur_remaining_mines);
+                            if (counting) {
+                                count_configuration(all_points, base_offset, search_remaining_mines - cur_remaining_mines);
+                            }
                         }
-                        final_remaining_mines_possibilities.add(cur_remaining_mines);
+                        --stack_pointer;
+                        continue;
                     }
-                    --stack_pointer;
-                    continue;
-                }
-                if (0 == cur_remaining_mines) {
-                    stack_stage[stack_pointer] = 1;
-                    if (quick_set_and_check_valid(all_points, cur_point_index, ZERO)) {
+                    if (0 == cur_remaining_mines) {
+                        stack_stage[stack_pointer] = 1;
+                        if (quick_set_and_check_valid(all_points, cur_point_index, ZERO)) {
+                            ++stack_pointer;
+                            stack_point_index[stack_pointer] = all_points.size();
+                            stack_remaining_mines[stack_pointer] = 0;
+                            stack_stage[stack_pointer] = 0;
+                        }
+                        continue;
+                    }
+                    if (number_of_blanks - cur_point_index == cur_remaining_mines) {
+                        stack_stage[stack_pointer] = 2;
+                        if (quick_set_and_check_valid(all_points, cur_point_index, MINE_FLAG)) {
+                            ++stack_pointer;
+                            stack_point_index[stack_pointer] = all_points.size();
+                            stack_remaining_mines[stack_pointer] = cur_remaining_mines - (all_points.size() - cur_point_index);
+                            stack_stage[stack_pointer] = 0;
+                        }
+                        continue;
+                    }
+                    stack_x[stack_pointer] = all_points.get(cur_point_index).getFirst();
+                    stack_y[stack_pointer] = all_points.get(cur_point_index).getSecond();
+                    board.set_safe(stack_x[stack_pointer], stack_y[stack_pointer]);
+                    stack_stage[stack_pointer] = 3;
+                    if (check_board_position_valid(stack_x[stack_pointer], stack_y[stack_pointer], false)) {
                         ++stack_pointer;
-                        stack_point_index[stack_pointer] = all_points.size();
-                        stack_remaining_mines[stack_pointer] = 0;
+                        stack_point_index[stack_pointer] = cur_point_index + 1;
+                        stack_remaining_mines[stack_pointer] = cur_remaining_mines;
                         stack_stage[stack_pointer] = 0;
                     }
                     continue;
                 }
-                if (number_of_blanks - cur_point_index == cur_remaining_mines) {
-                    stack_stage[stack_pointer] = 2;
-                    if (quick_set_and_check_valid(all_points, cur_point_index, MINE_FLAG)) {
+                if (stack_stage[stack_pointer] == 1) {
+                    quick_reset(all_points, cur_point_index);
+                    --stack_pointer;
+                    continue;
+                }
+                if (stack_stage[stack_pointer] == 2) {
+                    quick_reset(all_points, cur_point_index);
+                    --stack_pointer;
+                    continue;
+                }
+                if (stack_stage[stack_pointer] == 3) {
+                    board.set_mine(stack_x[stack_pointer], stack_y[stack_pointer]);
+                    stack_stage[stack_pointer] = 4;
+                    if (check_board_position_valid(stack_x[stack_pointer], stack_y[stack_pointer], false)) {
                         ++stack_pointer;
-                        stack_point_index[stack_pointer] = all_points.size();
-                        stack_remaining_mines[stack_pointer] = cur_remaining_mines - (all_points.size() - cur_point_index);
+                        stack_point_index[stack_pointer] = cur_point_index + 1;
+                        stack_remaining_mines[stack_pointer] = cur_remaining_mines - 1;
                         stack_stage[stack_pointer] = 0;
                     }
                     continue;
                 }
-                stack_x[stack_pointer] = all_points.get(cur_point_index).getFirst();
-                stack_y[stack_pointer] = all_points.get(cur_point_index).getSecond();
-                temp_map[stack_x[stack_pointer]][stack_y[stack_pointer]] = ZERO;
-                stack_stage[stack_pointer] = 3;
-                if (check_temp_map_position_valid(stack_x[stack_pointer], stack_y[stack_pointer], false)) {
-                    ++stack_pointer;
-                    stack_point_index[stack_pointer] = cur_point_index + 1;
-                    stack_remaining_mines[stack_pointer] = cur_remaining_mines;
-                    stack_stage[stack_pointer] = 0;
+                if (stack_stage[stack_pointer] == 4) {
+                    board.set_unknown(stack_x[stack_pointer], stack_y[stack_pointer]);
+                    --stack_pointer;
                 }
-                continue;
             }
-            if (stack_stage[stack_pointer] == 1) {
-                quick_reset(all_points, cur_point_index);
-                --stack_pointer;
-                continue;
+            search_abandoned = abandoned;
+            collect_search_statistics(expanded_nodes, abandoned, skipped_branches, skipped_leaves_bound);
+        }
+
+        // Returns false if some number already has more mines or fewer free cells than it needs.
+        private boolean initialize_slack(ArrayList<Pair<Integer, Integer>> all_points) {
+            if (null == number_ids || number_ids.length != nrows * ncols) {
+                number_ids = new_number_ids();
             }
-            if (stack_stage[stack_pointer] == 2) {
-                quick_reset(all_points, cur_point_index);
-                --stack_pointer;
-                continue;
+            BlockConstraints constraints = get_block_constraints(all_points, number_ids);
+            slack_cell_numbers = constraints.cell_numbers();
+            int m = constraints.numbers().length;
+            if (null == slack_needed || slack_needed.length < m) {
+                slack_needed = new int[Math.max(m, 2 * (null == slack_needed ? 0 : slack_needed.length))];
+                slack_free = new int[slack_needed.length];
             }
-            if (stack_stage[stack_pointer] == 3) {
-                temp_map[stack_x[stack_pointer]][stack_y[stack_pointer]] = MINE_FLAG;
-                stack_stage[stack_pointer] = 4;
-                if (check_temp_map_position_valid(stack_x[stack_pointer], stack_y[stack_pointer], false)) {
-                    ++stack_pointer;
-                    stack_point_index[stack_pointer] = cur_point_index + 1;
-                    stack_remaining_mines[stack_pointer] = cur_remaining_mines - 1;
-                    stack_stage[stack_pointer] = 0;
+            boolean valid = true;
+            for (int q = 0; q < m; ++q) {
+                int i = constraints.numbers()[q] / ncols;
+                int j = constraints.numbers()[q] % ncols;
+                slack_needed[q] = board.get_number(i, j) - board.count_mines_around(i, j);
+                slack_free[q] = board.count_unknowns_around(i, j);
+                if (slack_needed[q] < 0 || slack_needed[q] > slack_free[q]) {
+                    valid = false;
                 }
-                continue;
-            }
-            if (stack_stage[stack_pointer] == 4) {
-                temp_map[stack_x[stack_pointer]][stack_y[stack_pointer]] = BLANK;
-                --stack_pointer;
             }
+            return valid;
         }
-    }
 
-    private boolean[][] prediction_tag;
-
-    private ArrayList<Pair<Integer, Integer>> get_prediction_points_in_domain(int i, int j) {
-        ArrayList<Pair<Integer, Integer>> points = new ArrayList<>();
-        for (int[] unit_vector : unit_vectors) {
-            int new_i = i + unit_vector[0];
-            int new_j = j + unit_vector[1];
-            if (new_i >= 0 && new_i < nrows && new_j >= 0 && new_j < ncols && prediction_tag[new_i][new_j]) {
-                initialize_point_pool_position(new_i, new_j);
-                points.add(point_pool[new_i][new_j]);
+        private boolean slack_allows(int p, boolean mine) {
+            for (int q : slack_cell_numbers[p]) {
+                if (mine ? 0 == slack_needed[q] : slack_needed[q] == slack_free[q]) {
+                    return false;
+                }
             }
+            return true;
         }
-        return points;
-    }
 
-    private ArrayList<ArrayList<Pair<Integer, Integer>>> get_blocks() {
-        final HashSet<Pair<Integer, Integer>> all_points_hashset = new HashSet<>(all_points);
-        UnionFindSet<Pair<Integer, Integer>> set = new UnionFindSet<>(all_points_hashset);
-        Graph<Pair<Integer, Integer>> graph = new Graph<>(all_points_hashset);
-        for (Pair<Integer, Integer> point : all_points) {
-            ArrayList<Pair<Integer, Integer>> numbers_in_domain = get_numbers_in_domain(point.getFirst(), point.getSecond());
-            for (Pair<Integer, Integer> number_point : numbers_in_domain) {
-                ArrayList<Pair<Integer, Integer>> prediction_points = get_prediction_points_in_domain(number_point.getFirst(), number_point.getSecond());
-                for (Pair<Integer, Integer> prediction_point : prediction_points) {
-                    if (!point.equals(prediction_point)) {
-                        set.union(point, prediction_point);
-                        graph.add_edge(point, prediction_point, 0);
-                    }
+        private void assign_slack(ArrayList<Pair<Integer, Integer>> all_points, int p, boolean mine) {
+            for (int q : slack_cell_numbers[p]) {
+                --slack_free[q];
+                if (mine) {
+                    --slack_needed[q];
                 }
             }
-        }
-        ArrayList<ArrayList<Pair<Integer, Integer>>> blocks = new ArrayList<>();
-        HashSet<Pair<Integer, Integer>> visited = new HashSet<>();
-        for (Pair<Integer, Integer> point : all_points) {
-            Pair<Integer, Integer> root = set.find(point);
-            if (!visited.contains(root)) {
-                blocks.add(graph.get_bfs_order(root));
-                visited.add(root);
+            Pair<Integer, Integer> point = all_points.get(p);
+            if (mine) {
+                board.set_mine(point.getFirst(), point.getSecond());
+            } else {
+                board.set_safe(point.getFirst(), point.getSecond());
             }
         }
-        all_points.clear();
-        for (ArrayList<Pair<Integer, Integer>> block : blocks) {
-            all_points.addAll(block);
-        }
-        return blocks;
-    }
-
-    private int[][] index_map;
 
-    private ArrayList<ArrayList<Pair<Integer, Integer>>> get_blocks_raw() {
-        if (null == index_map || index_map.length != nrows || index_map[0].length != ncols) {
-            index_map = new int[nrows][ncols];
-        }
-        for (int i = 0; i < all_points.size(); ++i) {
-            Pair<Integer, Integer> point = all_points.get(i);
-            index_map[point.getFirst()][point.getSecond()] = i;
-        }
-        RawUnionFindSet set = new RawUnionFindSet(all_points.size());
-        RawGraph graph = new RawGraph(all_points.size());
-        for (Pair<Integer, Integer> point : all_points) {
-            int point_first = point.getFirst();
-            int point_second = point.getSecond();
-            ArrayList<Pair<Integer, Integer>> numbers_in_domain = get_numbers_in_domain(point_first, point_second);
-            for (Pair<Integer, Integer> number_point : numbers_in_domain) {
-                ArrayList<Pair<Integer, Integer>> prediction_points = get_prediction_points_in_domain(number_point.getFirst(), number_point.getSecond());
-                for (Pair<Integer, Integer> prediction_point : prediction_points) {
-                    int prediction_point_first = prediction_point.getFirst();
-                    int prediction_point_second = prediction_point.getSecond();
-                    if (!(point_first == prediction_point_first && point_second == prediction_point_second)) {
-                        int from_index = index_map[point_first][point_second];
-                        int to_index = index_map[prediction_point_first][prediction_point_second];
-                        set.union(from_index, to_index);
-                        graph.add_edge(from_index, to_index, 0);
-                    }
+        private void unassign_slack(ArrayList<Pair<Integer, Integer>> all_points, int p, boolean mine) {
+            for (int q : slack_cell_numbers[p]) {
+                ++slack_free[q];
+                if (mine) {
+                    ++slack_needed[q];
                 }
             }
+            Pair<Integer, Integer> point = all_points.get(p);
+            board.set_unknown(point.getFirst(), point.getSecond());
         }
-        ArrayList<ArrayList<Pair<Integer, Integer>>> blocks = new ArrayList<>();
-        HashSet<Integer> visited = new HashSet<>();
-        for (int i = 0; i < all_points.size(); ++i) {
-            int root = set.find(i);
-            if (!visited.contains(root)) {
-                ArrayList<Integer> bfs_order = graph.get_bfs_order(root);
-                ArrayList<Pair<Integer, Integer>> real_bfs_order = new ArrayList<>();
-                for (int k : bfs_order) {
-                    real_bfs_order.add(all_points.get(k));
-                }
-                blocks.add(real_bfs_order);
-                visited.add(root);
+
+        // Assigns the cells from start on while the numbers allow it and returns where it stopped.
+        private int assign_slack_rest(ArrayList<Pair<Integer, Integer>> all_points, int start, boolean mine) {
+            int p = start;
+            while (p < all_points.size() && slack_allows(p, mine)) {
+                assign_slack(all_points, p++, mine);
             }
+            return p;
         }
-        all_points.clear();
-        for (ArrayList<Pair<Integer, Integer>> block : blocks) {
-            all_points.addAll(block);
-        }
-        return blocks;
-    }
 
-    private boolean search_unfinished(ArrayList<Pair<Integer, Integer>> target_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
-        if (!force_stopped) {
-            try {
-                Thread.ofVirtual().start(() -> {
-                    search(target_points, base_offset, 0, remaining_mines, number_of_blanks, force_finished);
-                }).join();
-            } catch (InterruptedException e) {
-                force_stopped = true;
+        private void unassign_slack_rest(ArrayList<Pair<Integer, Integer>> all_points, int start, int end, boolean mine) {
+            for (int p = end - 1; p >= start; --p) {
+                unassign_slack(all_points, p, mine);
             }
         }
-        return force_stopped;
-    }
 
-    private boolean search_iterative_unfinished(ArrayList<Pair<Integer, Integer>> target_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
-        if (!force_stopped) {
-            search_iterative(target_points, base_offset, remaining_mines, number_of_blanks, force_finished);
+        // The same search as search_iterative, but each number keeps the mines it still needs and its free cells,
+        // so an assignment costs one update and one comparison per number next to the cell.
+        private void search_slack(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            search_remaining_mines = remaining_mines;
+            single_valued_cells = all_points.size();
+            block_mine_counts.clear();
+            boolean abandoned = false;
+            long expanded_nodes = 0;
+            long skipped_branches = 0;
+            double skipped_leaves_bound = 0;
+            int n = all_points.size();
+            ensure_search_stack(n + 1);
+            int stack_pointer = initialize_slack(all_points) ? 0 : -1;
+            if (0 == stack_pointer) {
+                stack_point_index[0] = 0;
+                stack_remaining_mines[0] = remaining_mines;
+                stack_stage[0] = 0;
+            }
+            while (stack_pointer >= 0) {
+                int cur_point_index = stack_point_index[stack_pointer];
+                int cur_remaining_mines = stack_remaining_mines[stack_pointer];
+                if (stack_stage[stack_pointer] == 0) {
+                    if (stopped()) {
+                        --stack_pointer;
+                        continue;
+                    }
+                    if (abandoned || block_undetermined()) {
+                        abandoned = true;
+                        ++skipped_branches;
+                        skipped_leaves_bound += Math.scalb(1.0, n - cur_point_index);
+                        --stack_pointer;
+                        continue;
+                    }
+                    ++expanded_nodes;
+                    if (cur_point_index == n) {
+                        if (check_final_status_valid(cur_remaining_mines, number_of_blanks - n, force_finished)) {
+                            record_possibilities(all_points, base_offset);
+                            final_remaining_mines_possibilities.set(cur_remaining_mines);
+                            block_mine_counts.set(search_remaining_mines - cur_remaining_mines);
+                            if (counting) {
+                                count_configuration(all_points, base_offset, search_remaining_mines - cur_remaining_mines);
+                            }
+                        }
+                        --stack_pointer;
+                        continue;
+                    }
+                    if (0 == cur_remaining_mines || number_of_blanks - cur_point_index == cur_remaining_mines) {
+                        boolean mine = 0 != cur_remaining_mines;
+                        stack_stage[stack_pointer] = mine ? 2 : 1;
+                        stack_x[stack_pointer] = assign_slack_rest(all_points, cur_point_index, mine);
+                        if (n == stack_x[stack_pointer]) {
+                            ++stack_pointer;
+                            stack_point_index[stack_pointer] = n;
+                            stack_remaining_mines[stack_pointer] = mine ? cur_remaining_mines - (n - cur_point_index) : 0;
+                            stack_stage[stack_pointer] = 0;
+                        }
+                        continue;
+                    }
+                    stack_stage[stack_pointer] = 3;
+                    if (slack_allows(cur_point_index, false)) {
+                        assign_slack(all_points, cur_point_index, false);
+                        stack_y[stack_pointer] = 1;
+                        ++stack_pointer;
+                        stack_point_index[stack_pointer] = cur_point_index + 1;
+                        stack_remaining_mines[stack_pointer] = cur_remaining_mines;
+                        stack_stage[stack_pointer] = 0;
+                    } else {
+                        stack_y[stack_pointer] = 0;
+                    }
+                    continue;
+                }
+                if (stack_stage[stack_pointer] == 1 || stack_stage[stack_pointer] == 2) {
+                    unassign_slack_rest(all_points, cur_point_index, stack_x[stack_pointer], stack_stage[stack_pointer] == 2);
+                    --stack_pointer;
+                    continue;
+                }
+                if (stack_stage[stack_pointer] == 3) {
+                    if (1 == stack_y[stack_pointer]) {
+                        unassign_slack(all_points, cur_point_index, false);
+                    }
+                    stack_stage[stack_pointer] = 4;
+                    if (slack_allows(cur_point_index, true)) {
+                        assign_slack(all_points, cur_point_index, true);
+                        stack_y[stack_pointer] = 1;
+                        ++stack_pointer;
+                        stack_point_index[stack_pointer] = cur_point_index + 1;
+                        stack_remaining_mines[stack_pointer] = cur_remaining_mines - 1;
+                        stack_stage[stack_pointer] = 0;
+                    } else {
+                        stack_y[stack_pointer] = 0;
+                    }
+                    continue;
+                }
+                if (stack_stage[stack_pointer] == 4) {
+                    if (1 == stack_y[stack_pointer]) {
+                        unassign_slack(all_points, cur_point_index, true);
+                    }
+                    --stack_pointer;
+                }
+            }
+            search_abandoned = abandoned;
+            collect_search_statistics(expanded_nodes, abandoned, skipped_branches, skipped_leaves_bound);
+        }
+
+        private void search_block(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            if (decomposition_search && all_points.size() >= MIN_DECOMPOSITION_CELLS && search_decomposition(all_points, base_offset, remaining_mines, number_of_blanks, force_finished)) {
+                return;
+            }
+            if (SearchEngine.SLACK_COUNTERS == search_engine) {
+                search_slack(all_points, base_offset, remaining_mines, number_of_blanks, force_finished);
+            } else {
+                search_iterative(all_points, base_offset, remaining_mines, number_of_blanks, force_finished);
+            }
         }
-        return force_stopped;
-    }
 
-    private void initialize_temp_map() {
-        if (null == temp_map || temp_map.length != nrows || temp_map[0].length != ncols) {
-            temp_map = new char[nrows][ncols];
+        // Returns false, leaving everything untouched, if the block is too wide or its counts overflow.
+        private boolean search_decomposition(ArrayList<Pair<Integer, Integer>> all_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            if (null == number_ids || number_ids.length != nrows * ncols) {
+                number_ids = new_number_ids();
+            }
+            BlockConstraints constraints = get_block_constraints(all_points, number_ids);
+            int[][] cell_numbers = constraints.cell_numbers();
+            int[][] number_cells = constraints.number_cells();
+            int[] needed = new int[number_cells.length];
+            for (int q = 0; q < needed.length; ++q) {
+                int i = constraints.numbers()[q] / ncols;
+                int j = constraints.numbers()[q] % ncols;
+                needed[q] = board.get_number(i, j) - board.count_mines_around(i, j);
+            }
+            int n = all_points.size();
+            int[] order = new int[n];
+            for (int p = 0; p < n; ++p) {
+                order[p] = p;
+            }
+            long cost = PathDecompositionSolver.get_cost(cell_numbers, number_cells, needed, order);
+            int[] peripheral_order = PathDecompositionSolver.get_peripheral_order(cell_numbers, number_cells);
+            long peripheral_cost = PathDecompositionSolver.get_cost(cell_numbers, number_cells, needed, peripheral_order);
+            if (peripheral_cost < cost) {
+                order = peripheral_order;
+                cost = peripheral_cost;
+            }
+            if (Long.MAX_VALUE == cost) {
+                return false;
+            }
+            boolean[] admissible = new boolean[n + 1];
+            for (int k = 0; k <= n; ++k) {
+                admissible[k] = check_final_status_valid(remaining_mines - k, number_of_blanks - n, force_finished);
+            }
+            PathDecompositionSolver.Result result;
+            try {
+                result = PathDecompositionSolver.solve(cell_numbers, number_cells, needed, order, admissible, counting, this::stopped);
+            } catch (ArithmeticException e) {
+                return false;
+            }
+            search_remaining_mines = remaining_mines;
+            block_mine_counts.clear();
+            search_abandoned = false;
+            if (null == result) {
+                return true;
+            }
+            single_valued_cells = n;
+            for (int p = 0; p < n; ++p) {
+                possibility_masks[base_offset + p] |= result.masks()[p];
+                if (BOTH_POSSIBLE == possibility_masks[base_offset + p]) {
+                    --single_valued_cells;
+                }
+            }
+            for (int k = 0; k <= n; ++k) {
+                if (admissible[k] && 0 != result.configurations()[k]) {
+                    block_mine_counts.set(k);
+                    final_remaining_mines_possibilities.set(remaining_mines - k);
+                    if (counting) {
+                        mine_count_histogram[k] = result.configurations()[k];
+                        for (int p = 0; p < n; ++p) {
+                            cell_mine_tallies[base_offset + p][k] = result.mine_tallies()[p][k];
+                        }
+                    }
+                }
+            }
+            collect_search_statistics(result.expanded_states(), false, 0, 0);
+            return true;
         }
-        for (int i = 0; i < nrows; ++i) {
-            for (int j = 0; j < ncols; ++j) {
-                if (is_unfinished_operand(map[i][j])) {
-                    temp_map[i][j] = BLANK;
+
+        private boolean cached_block_usable(CachedBlock cached, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            if (null == cached || (mine_counts_needed && !cached.complete())) {
+                return false;
+            }
+            int min_mines = cached.complete() ? cached.mine_counts().nextSetBit(0) : 0;
+            int max_mines = cached.complete() ? cached.mine_counts().length() - 1 : cached.size();
+            int remaining_blanks = number_of_blanks - cached.size();
+            return check_final_status_valid(remaining_mines - min_mines, remaining_blanks, force_finished) && check_final_status_valid(remaining_mines - max_mines, remaining_blanks, force_finished);
+        }
+
+        private void load_mine_counts(CachedBlock cached, int remaining_mines) {
+            for (int k = cached.mine_counts().nextSetBit(0); k >= 0; k = cached.mine_counts().nextSetBit(k + 1)) {
+                final_remaining_mines_possibilities.set(remaining_mines - k);
+            }
+            count_reused_block();
+        }
+
+        private CachedBlock load_cached_block(ArrayList<Pair<Integer, Integer>> block, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            CachedBlock cached = find_cached_block(block);
+            if (!cached_block_usable(cached, remaining_mines, number_of_blanks, force_finished)) {
+                return null;
+            }
+            for (int i = 0; i < block.size(); ++i) {
+                Pair<Integer, Integer> point = block.get(i);
+                possibility_masks[base_offset + i] = previous_block_cache.masks[point.getFirst()][point.getSecond()];
+            }
+            load_mine_counts(cached, remaining_mines);
+            return cached;
+        }
+
+        private CachedBlock load_cached_pattern(BlockSignature signature, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            CachedPattern pattern;
+            synchronized (pattern_cache) {
+                pattern = pattern_cache.get(signature.key());
+            }
+            if (null == pattern || !cached_block_usable(pattern.block(), remaining_mines, number_of_blanks, force_finished)) {
+                return null;
+            }
+            int[] order = signature.order();
+            for (int i = 0; i < order.length; ++i) {
+                possibility_masks[base_offset + i] = pattern.masks()[order[i]];
+            }
+            load_mine_counts(pattern.block(), remaining_mines);
+            return pattern.block();
+        }
+
+        private CachedBlock load_cached_result(ArrayList<Pair<Integer, Integer>> block, BlockSignature signature, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+            CachedBlock cached = null;
+            if (null != block_cache) {
+                cached = load_cached_block(block, base_offset, remaining_mines, number_of_blanks, force_finished);
+            }
+            if (null == cached && null != signature) {
+                cached = load_cached_pattern(signature, base_offset, remaining_mines, number_of_blanks, force_finished);
+            }
+            return cached;
+        }
+
+        private void initialize_board() {
+            if (null == board || !board.has_shape(nrows, ncols)) {
+                board = new BitBoard(nrows, ncols);
+            }
+            board.load(map);
+            for (Pair<Pair<Integer, Integer>, Character> prediction : resolved_predictions) {
+                Pair<Integer, Integer> point = prediction.getFirst();
+                if (MINE_FLAG == prediction.getSecond()) {
+                    board.set_mine(point.getFirst(), point.getSecond());
                 } else {
-                    temp_map[i][j] = map[i][j];
+                    board.set_safe(point.getFirst(), point.getSecond());
                 }
             }
         }
+
+        private void initialize_possibility_map(ArrayList<Pair<Integer, Integer>> target_points) {
+            if (null == possibility_masks || possibility_masks.length != target_points.size()) {
+                possibility_masks = new byte[target_points.size()];
+            } else {
+                Arrays.fill(possibility_masks, (byte) 0);
+            }
+            if (null == final_remaining_mines_possibilities) {
+                final_remaining_mines_possibilities = new BitSet();
+            } else {
+                final_remaining_mines_possibilities.clear();
+            }
+        }
+    }
+
+    private final class BlockSearchTask extends RecursiveAction {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final transient ArrayList<Pair<Integer, Integer>> block;
+        private final int remaining_mines;
+        private final int number_of_blanks;
+        private final boolean counting;
+        private final transient SearchContext context = new SearchContext();
+        private boolean finished = false;
+        private transient BlockSignature signature;
+        private transient CachedBlock cached;
+
+        private BlockSearchTask(ArrayList<Pair<Integer, Integer>> block, int remaining_mines, int number_of_blanks, boolean counting) {
+            this.block = block;
+            this.remaining_mines = remaining_mines;
+            this.number_of_blanks = number_of_blanks;
+            this.counting = counting;
+        }
+
+        private BlockSearchTask(ArrayList<Pair<Integer, Integer>> block, int remaining_mines, int number_of_blanks) {
+            this(block, remaining_mines, number_of_blanks, false);
+        }
+
+        @Override
+        protected void compute() {
+            if (!force_stopped) {
+                context.initialize_possibility_map(block);
+                context.mine_counts_needed = false;
+                if (!counting) {
+                    cached = context.load_cached_result(block, signature, 0, remaining_mines, number_of_blanks, false);
+                    if (null != cached) {
+                        finished = true;
+                        publish_forced_predictions(context, block);
+                        return;
+                    }
+                }
+                context.initialize_board();
+                if (counting) {
+                    context.initialize_counting(block);
+                }
+                context.search_block(block, 0, remaining_mines, number_of_blanks, false);
+                finished = !force_stopped;
+                if (finished && !counting) {
+                    publish_forced_predictions(context, block);
+                }
+            }
+        }
+    }
+
+    private boolean[][] prediction_tag;
+
+    private int get_prediction_points_in_domain(int cell, int[] points) {
+        int count = 0;
+        for (int k = topology.get_start(cell), end = topology.get_end(cell); k < end; ++k) {
+            if (prediction_tag[topology.get_neighbor_row(k)][topology.get_neighbor_col(k)]) {
+                points[count++] = topology.get_neighbor(k);
+            }
+        }
+        return count;
+    }
+
+    private ArrayList<Pair<Integer, Integer>> get_prediction_points_in_domain(int i, int j) {
+        ArrayList<Pair<Integer, Integer>> points = new ArrayList<>();
+        for (int k = topology.get_start(i, j), end = topology.get_end(i, j); k < end; ++k) {
+            int new_i = topology.get_neighbor_row(k);
+            int new_j = topology.get_neighbor_col(k);
+            if (prediction_tag[new_i][new_j]) {
+                initialize_point_pool_position(new_i, new_j);
+                points.add(point_pool[new_i][new_j]);
+            }
+        }
+        return points;
+    }
+
+    private ArrayList<ArrayList<Pair<Integer, Integer>>> get_blocks() {
+        final HashSet<Pair<Integer, Integer>> all_points_hashset = new HashSet<>(all_points);
+        UnionFindSet<Pair<Integer, Integer>> set = new UnionFindSet<>(all_points_hashset);
+        Graph<Pair<Integer, Integer>> graph = new Graph<>(all_points_hashset);
+        for (Pair<Integer, Integer> point : all_points) {
+            ArrayList<Pair<Integer, Integer>> numbers_in_domain = get_numbers_in_domain(point.getFirst(), point.getSecond());
+            for (Pair<Integer, Integer> number_point : numbers_in_domain) {
+                ArrayList<Pair<Integer, Integer>> prediction_points = get_prediction_points_in_domain(number_point.getFirst(), number_point.getSecond());
+                for (Pair<Integer, Integer> prediction_point : prediction_points) {
+                    if (!point.equals(prediction_point)) {
+                        set.union(point, prediction_point);
+                        graph.add_edge(point, prediction_point, 0);
+                    }
+                }
+            }
+        }
+        ArrayList<ArrayList<Pair<Integer, Integer>>> blocks = new ArrayList<>();
+        HashSet<Pair<Integer, Integer>> visited = new HashSet<>();
+        for (Pair<Integer, Integer> point : all_points) {
+            Pair<Integer, Integer> root = set.find(point);
+            if (!visited.contains(root)) {
+                blocks.add(graph.get_bfs_order(root));
+                visited.add(root);
+            }
+        }
+        all_points.clear();
+        for (ArrayList<Pair<Integer, Integer>> block : blocks) {
+            all_points.addAll(block);
+        }
+        return blocks;
+    }
+
+    private int[][] index_map;
+
+    private ArrayList<ArrayList<Pair<Integer, Integer>>> get_blocks_raw() {
+        return get_blocks_raw(VariableOrdering.BFS == variable_ordering ? null : get_known_mine_map());
+    }
+
+    // known_mine_map is only read by the block ordering, and may be null when the ordering is BFS.
+    private ArrayList<ArrayList<Pair<Integer, Integer>>> get_blocks_raw(char[][] known_mine_map) {
+        if (null == index_map || index_map.length != nrows || index_map[0].length != ncols) {
+            index_map = new int[nrows][ncols];
+        }
+        for (int i = 0; i < all_points.size(); ++i) {
+            Pair<Integer, Integer> point = all_points.get(i);
+            index_map[point.getFirst()][point.getSecond()] = i;
+        }
+        RawUnionFindSet set = new RawUnionFindSet(all_points.size());
+        RawGraph graph = new RawGraph(all_points.size());
+        int[] numbers_in_domain = new int[unit_vectors.length];
+        int[] prediction_points = new int[unit_vectors.length];
+        for (int from_index = 0; from_index < all_points.size(); ++from_index) {
+            Pair<Integer, Integer> point = all_points.get(from_index);
+            int cell = point.getFirst() * ncols + point.getSecond();
+            int number_count = get_numbers_in_domain(cell, numbers_in_domain);
+            for (int k = 0; k < number_count; ++k) {
+                int prediction_count = get_prediction_points_in_domain(numbers_in_domain[k], prediction_points);
+                for (int l = 0; l < prediction_count; ++l) {
+                    int prediction_point = prediction_points[l];
+                    if (prediction_point != cell) {
+                        int to_index = index_map[prediction_point / ncols][prediction_point % ncols];
+                        set.union(from_index, to_index);
+                        graph.add_edge(from_index, to_index, 0);
+                    }
+                }
+            }
+        }
+        ArrayList<ArrayList<Pair<Integer, Integer>>> blocks = new ArrayList<>();
+        boolean[] visited = new boolean[all_points.size()];
+        for (int i = 0; i < all_points.size(); ++i) {
+            int root = set.find(i);
+            if (!visited[root]) {
+                ArrayList<Integer> bfs_order = graph.get_bfs_order(root);
+                ArrayList<Pair<Integer, Integer>> real_bfs_order = new ArrayList<>(bfs_order.size());
+                for (int k : bfs_order) {
+                    real_bfs_order.add(all_points.get(k));
+                }
+                blocks.add(VariableOrdering.BFS == variable_ordering ? real_bfs_order : order_block(real_bfs_order, known_mine_map));
+                visited[root] = true;
+            }
+        }
+        all_points.clear();
+        for (ArrayList<Pair<Integer, Integer>> block : blocks) {
+            all_points.addAll(block);
+        }
+        return blocks;
+    }
+
+    // Local indices for the cells of a block and the numbers around them; numbers holds each number's cell index.
+    private record BlockConstraints(int[][] cell_numbers, int[][] number_cells, int[] numbers) {
+    }
+
+    // number_ids is scratch of size nrows * ncols filled with -1, and is left that way.
+    private BlockConstraints get_block_constraints(ArrayList<Pair<Integer, Integer>> block, int[] number_ids) {
+        int n = block.size();
+        int[][] cell_numbers = new int[n][];
+        int[] number_list = new int[n * unit_vectors.length];
+        int[] number_sizes = new int[n * unit_vectors.length];
+        int m = 0;
+        int[] numbers_in_domain = new int[unit_vectors.length];
+        for (int p = 0; p < n; ++p) {
+            Pair<Integer, Integer> point = block.get(p);
+            int count = get_numbers_in_domain(point.getFirst() * ncols + point.getSecond(), numbers_in_domain);
+            cell_numbers[p] = new int[count];
+            for (int k = 0; k < count; ++k) {
+                int number = numbers_in_domain[k];
+                if (-1 == number_ids[number]) {
+                    number_ids[number] = m;
+                    number_list[m++] = number;
+                }
+                cell_numbers[p][k] = number_ids[number];
+                ++number_sizes[number_ids[number]];
+            }
+        }
+        int[][] number_cells = new int[m][];
+        for (int q = 0; q < m; ++q) {
+            number_cells[q] = new int[number_sizes[q]];
+            number_sizes[q] = 0;
+            number_ids[number_list[q]] = -1;
+        }
+        for (int p = 0; p < n; ++p) {
+            for (int q : cell_numbers[p]) {
+                number_cells[q][number_sizes[q]++] = p;
+            }
+        }
+        return new BlockConstraints(cell_numbers, number_cells, Arrays.copyOf(number_list, m));
+    }
+
+    private int[] new_number_ids() {
+        int[] number_ids = new int[nrows * ncols];
+        Arrays.fill(number_ids, -1);
+        return number_ids;
+    }
+
+    private int[] number_ids;
+
+    private ArrayList<Pair<Integer, Integer>> order_block(ArrayList<Pair<Integer, Integer>> block, char[][] mine_map) {
+        if (null == number_ids || number_ids.length != nrows * ncols) {
+            number_ids = new_number_ids();
+        }
+        int n = block.size();
+        BlockConstraints constraints = get_block_constraints(block, number_ids);
+        int[][] cell_numbers = constraints.cell_numbers();
+        int[][] number_cells = constraints.number_cells();
+        int[] slack = new int[number_cells.length];
+        for (int q = 0; q < number_cells.length; ++q) {
+            int number = constraints.numbers()[q];
+            int mines = 0;
+            for (int k = topology.get_start(number), end = topology.get_end(number); k < end; ++k) {
+                if (MINE_FLAG == mine_map[topology.get_neighbor_row(k)][topology.get_neighbor_col(k)]) {
+                    ++mines;
+                }
+            }
+            int needed = to_number(map[number / ncols][number % ncols]) - mines;
+            slack[q] = Math.max(0, Math.min(needed, number_cells[q].length - needed));
+        }
+        int[] order = switch (variable_ordering) {
+            case MOST_CONSTRAINED -> BlockOrdering.get_most_constrained_order(cell_numbers, number_cells);
+            case SMALLEST_SLACK -> BlockOrdering.get_smallest_slack_order(cell_numbers, number_cells, slack);
+            case TREE_DECOMPOSITION -> BlockOrdering.get_tree_decomposition_order(cell_numbers, number_cells);
+            default -> null;
+        };
+        if (null == order) {
+            return block;
+        }
+        ArrayList<Pair<Integer, Integer>> ordered = new ArrayList<>(n);
+        for (int p : order) {
+            ordered.add(block.get(p));
+        }
+        return ordered;
+    }
+
+    private void search_blocks_in_parallel(ArrayList<BlockSearchTask> tasks) {
+        search_pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private boolean search_unfinished(ArrayList<Pair<Integer, Integer>> target_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+        if (!force_stopped) {
+            try {
+                Thread.ofVirtual().start(() -> {
+                    search_context.single_valued_cells = target_points.size();
+                    search_context.search(target_points, base_offset, 0, remaining_mines, number_of_blanks, force_finished);
+                }).join();
+            } catch (InterruptedException e) {
+                force_stopped = true;
+                Thread.currentThread().interrupt();
+            }
+        }
+        return force_stopped;
+    }
+
+    private boolean search_iterative_unfinished(ArrayList<Pair<Integer, Integer>> target_points, int base_offset, int remaining_mines, int number_of_blanks, boolean force_finished) {
+        if (!force_stopped) {
+            search_context.search_block(target_points, base_offset, remaining_mines, number_of_blanks, force_finished);
+        }
+        return force_stopped;
     }
 
     private void initialize_get_predictions() {
         force_stopped = false;
+        synchronized (this) {
+            expanded_nodes = 0;
+            abandoned_blocks = 0;
+            skipped_branches = 0;
+            skipped_leaves_bound = 0;
+            reused_blocks = 0;
+        }
         mines_already_determined = 0;
+        prediction_tiers.clear();
+        resolved_predictions.clear();
+        resolved_mines = 0;
+        if (null == resolved_tag || resolved_tag.length != nrows || resolved_tag[0].length != ncols) {
+            resolved_tag = new boolean[nrows][ncols];
+        } else {
+            for (boolean[] row : resolved_tag) {
+                Arrays.fill(row, false);
+            }
+        }
+        initialize_frontier();
+    }
+
+    private void resolve_predictions(ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions) {
+        for (Pair<Pair<Integer, Integer>, Character> prediction : predictions) {
+            Pair<Integer, Integer> point = prediction.getFirst();
+            resolved_tag[point.getFirst()][point.getSecond()] = true;
+            resolved_predictions.add(prediction);
+            if (MINE_FLAG == prediction.getSecond()) {
+                ++resolved_mines;
+            }
+        }
+        initialize_frontier();
+    }
+
+    private void initialize_frontier() {
         if (null == all_points) {
             all_points = new ArrayList<>();
         } else {
@@ -729,121 +1538,475 @@ public class MinesweeperState {
         boolean[][] visited = new boolean[nrows][ncols];
         for (int i = 0; i < nrows; ++i) {
             for (int j = 0; j < ncols; ++j) {
-                if (is_unfinished_operand(map[i][j])) {
+                if (is_unfinished_operand(map[i][j]) && !resolved_tag[i][j]) {
                     initialize_point_pool_position(i, j);
                     all_blanks.add(point_pool[i][j]);
                 } else {
                     visited[i][j] = true;
                 }
                 if (is_number(map[i][j])) {
-                    int min_i = Math.max(0, i - 1);
-                    int max_i = Math.min(nrows - 1, i + 1);
-                    int min_j = Math.max(0, j - 1);
-                    int max_j = Math.min(ncols - 1, j + 1);
-                    for (int new_i = min_i; new_i <= max_i; ++new_i) {
-                        for (int new_j = min_j; new_j <= max_j; ++new_j) {
-                            if (!visited[new_i][new_j] && is_unfinished_operand(map[new_i][new_j])) {
-                                initialize_point_pool_position(new_i, new_j);
-                                all_points.add(point_pool[new_i][new_j]);
-                                prediction_tag[new_i][new_j] = true;
-                            }
-                            visited[new_i][new_j] = true;
+                    for (int k = topology.get_start(i, j), end = topology.get_end(i, j); k < end; ++k) {
+                        int new_i = topology.get_neighbor_row(k);
+                        int new_j = topology.get_neighbor_col(k);
+                        if (!visited[new_i][new_j] && is_unfinished_operand(map[new_i][new_j]) && !resolved_tag[new_i][new_j]) {
+                            initialize_point_pool_position(new_i, new_j);
+                            all_points.add(point_pool[new_i][new_j]);
+                            prediction_tag[new_i][new_j] = true;
                         }
+                        visited[new_i][new_j] = true;
                     }
                 }
             }
         }
     }
 
-    private void initialize_possibility_map(ArrayList<Pair<Integer, Integer>> target_points) {
-        if (null == possibility_map || possibility_map.length != target_points.size()) {
-            possibility_map = new HashSet[target_points.size()];
-            for (int i = 0; i < target_points.size(); ++i) {
-                possibility_map[i] = new HashSet<>();
+    private boolean summarize_predictions_failed(SearchContext context, ArrayList<Pair<Integer, Integer>> target_points, int start, int end, CellPredictions predictions) {
+        for (int i = start; i < end; ++i) {
+            Pair<Integer, Integer> point = target_points.get(i);
+            byte possibility_mask = context.possibility_masks[i];
+            if (0 == possibility_mask) {
+                return true;
+            } else if (SAFE_POSSIBLE == possibility_mask) {
+                predictions.add(point.getFirst(), point.getSecond(), ZERO);
+            } else if (MINE_POSSIBLE == possibility_mask) {
+                predictions.add(point.getFirst(), point.getSecond(), MINE_FLAG);
+                ++mines_already_determined;
             }
-        } else {
-            for (int i = 0; i < target_points.size(); ++i) {
-                possibility_map[i].clear();
+        }
+        return false;
+    }
+
+    private void publish_forced_predictions(SearchContext context, ArrayList<Pair<Integer, Integer>> block) {
+        if (null == prediction_listener) {
+            return;
+        }
+        CellPredictions forced = new CellPredictions(ncols);
+        for (int i = 0; i < block.size(); ++i) {
+            Pair<Integer, Integer> point = block.get(i);
+            byte possibility_mask = context.possibility_masks[i];
+            if (0 == possibility_mask) {
+                return;
+            } else if (SAFE_POSSIBLE == possibility_mask) {
+                forced.add(point.getFirst(), point.getSecond(), ZERO);
+            } else if (MINE_POSSIBLE == possibility_mask) {
+                forced.add(point.getFirst(), point.getSecond(), MINE_FLAG);
             }
         }
-        if (null == final_remaining_mines_possibilities) {
-            final_remaining_mines_possibilities = new HashSet<>();
+        publish_predictions(forced, 0, PredictionTier.SEARCH);
+    }
+
+    private boolean add_mine_count_predictions(CellPredictions predictions, int unresolved_mines) {
+        char state;
+        if (0 == unresolved_mines) {
+            state = ZERO;
+        } else if (unresolved_mines == all_blanks.size()) {
+            state = MINE_FLAG;
         } else {
-            final_remaining_mines_possibilities.clear();
+            return false;
+        }
+        for (Pair<Integer, Integer> point : all_blanks) {
+            predictions.add(point.getFirst(), point.getSecond(), state);
         }
+        tag_predictions(predictions, PredictionTier.MINE_COUNT);
+        return true;
     }
 
-    private boolean summarize_predictions_failed(ArrayList<Pair<Integer, Integer>> target_points, int start, int end, ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions) {
-        for (int i = start; i < end; ++i) {
-            Pair<Integer, Integer> point = target_points.get(i);
-            HashSet<Character> possibility_set = possibility_map[i];
-            if (possibility_set.isEmpty()) {
-                return true;
-            } else if (1 == possibility_set.size()) {
-                char state = possibility_set.iterator().next();
-                predictions.add(new Pair<>(point, state));
-                if (MINE_FLAG == state) {
-                    ++mines_already_determined;
+    private boolean add_local_rule_predictions(CellPredictions predictions, PredictionTier tier) {
+        ArrayList<Pair<Pair<Integer, Integer>, Character>> local_predictions;
+        if (PredictionTier.SINGLE_NUMBER == tier) {
+            local_predictions = LocalRuleSolver.get_single_number_predictions(map, resolved_predictions);
+        } else {
+            local_predictions = LocalRuleSolver.get_number_pair_predictions(map, resolved_predictions);
+        }
+        if (null == local_predictions) {
+            return false;
+        }
+        if (!local_predictions.isEmpty()) {
+            predictions.add_all(local_predictions);
+            tag_predictions(predictions, tier);
+            resolve_predictions(local_predictions);
+        }
+        return true;
+    }
+
+    public CellPredictions get_cell_predictions() {
+        initialize_get_predictions();
+        CellPredictions predictions = new CellPredictions(ncols);
+        if (add_mine_count_predictions(predictions, remaining_mines)) {
+            return predictions;
+        }
+        if (local_rules) {
+            for (PredictionTier tier : new PredictionTier[]{PredictionTier.SINGLE_NUMBER, PredictionTier.NUMBER_PAIR}) {
+                if (!add_local_rule_predictions(predictions, tier)) {
+                    return null;
+                }
+                if (stop_at_first_tier && !predictions.isEmpty()) {
+                    return predictions;
                 }
             }
+            int unresolved_mines = remaining_mines - resolved_mines;
+            if (unresolved_mines < 0 || unresolved_mines > all_blanks.size()) {
+                return null;
+            }
+            if (add_mine_count_predictions(predictions, unresolved_mines)) {
+                return predictions;
+            }
         }
-        return false;
+        predictions = search_predictions(predictions);
+        if (null != predictions) {
+            tag_predictions(predictions, PredictionTier.SEARCH);
+        }
+        return predictions;
     }
 
     public ArrayList<Pair<Pair<Integer, Integer>, Character>> get_predictions() {
-        initialize_get_predictions();
-        ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = new ArrayList<>();
-        if (0 == remaining_mines) {
-            for (Pair<Integer, Integer> point : all_blanks) {
-                predictions.add(new Pair<>(point, ZERO));
+        CellPredictions predictions = get_cell_predictions();
+        return null == predictions ? null : predictions.to_pairs();
+    }
+
+    // Per-cell outcome masks of the blocks searched for one map, with that map (local-rule predictions applied).
+    private static final class BlockCache {
+        private final char[][] map;
+        private final int[][] block_ids;
+        private final byte[][] masks;
+        private final ArrayList<CachedBlock> blocks = new ArrayList<>();
+
+        private BlockCache(char[][] map) {
+            this.map = map;
+            block_ids = new int[map.length][map[0].length];
+            for (int[] row : block_ids) {
+                Arrays.fill(row, -1);
             }
-        } else if (remaining_mines == all_blanks.size()) {
-            for (Pair<Integer, Integer> point : all_blanks) {
-                predictions.add(new Pair<>(point, MINE_FLAG));
+            masks = new byte[map.length][map[0].length];
+        }
+    }
+
+    // mine_counts holds the block mine counts reached; complete is false if the search was abandoned early.
+    private record CachedBlock(int size, BitSet mine_counts, boolean complete) {
+    }
+
+    private BlockCache block_cache;
+    private BlockCache previous_block_cache;
+    private boolean[][] changed_nearby;
+
+    private void begin_block_cache() {
+        char[][] resolved_map = new char[nrows][];
+        for (int i = 0; i < nrows; ++i) {
+            resolved_map[i] = map[i].clone();
+        }
+        for (Pair<Pair<Integer, Integer>, Character> prediction : resolved_predictions) {
+            resolved_map[prediction.getFirst().getFirst()][prediction.getFirst().getSecond()] = prediction.getSecond();
+        }
+        previous_block_cache = block_cache;
+        if (null != previous_block_cache && (previous_block_cache.map.length != nrows || previous_block_cache.map[0].length != ncols)) {
+            previous_block_cache = null;
+        }
+        block_cache = new BlockCache(resolved_map);
+        if (null == previous_block_cache) {
+            return;
+        }
+        // A block's constraints only involve numbers next to its cells and those numbers' neighbours.
+        changed_nearby = new boolean[nrows][ncols];
+        for (int i = 0; i < nrows; ++i) {
+            for (int j = 0; j < ncols; ++j) {
+                if (resolved_map[i][j] != previous_block_cache.map[i][j]) {
+                    for (int new_i = Math.max(0, i - 2); new_i <= Math.min(nrows - 1, i + 2); ++new_i) {
+                        for (int new_j = Math.max(0, j - 2); new_j <= Math.min(ncols - 1, j + 2); ++new_j) {
+                            changed_nearby[new_i][new_j] = true;
+                        }
+                    }
+                }
             }
+        }
+    }
+
+    private CachedBlock find_cached_block(ArrayList<Pair<Integer, Integer>> block) {
+        if (null == previous_block_cache) {
+            return null;
+        }
+        Pair<Integer, Integer> first = block.get(0);
+        int id = previous_block_cache.block_ids[first.getFirst()][first.getSecond()];
+        if (id < 0 || previous_block_cache.blocks.get(id).size() != block.size()) {
+            return null;
+        }
+        for (Pair<Integer, Integer> point : block) {
+            if (previous_block_cache.block_ids[point.getFirst()][point.getSecond()] != id || changed_nearby[point.getFirst()][point.getSecond()]) {
+                return null;
+            }
+        }
+        return previous_block_cache.blocks.get(id);
+    }
+
+    // A fresh search result is kept only if the global mine count could not have filtered any configuration,
+    // so that it depends on the block alone.
+    private void store_search_result(ArrayList<Pair<Integer, Integer>> block, BlockSignature signature, SearchContext context, int base_offset, CachedBlock cached, int remaining_mines, int number_of_blanks, boolean force_finished) {
+        if (null == cached) {
+            if (force_finished || remaining_mines < block.size() || number_of_blanks - block.size() < remaining_mines || context.block_mine_counts.isEmpty()) {
+                return;
+            }
+            cached = new CachedBlock(block.size(), (BitSet) context.block_mine_counts.clone(), !context.search_abandoned);
+            if (null != signature) {
+                byte[] masks = new byte[block.size()];
+                for (int i = 0; i < block.size(); ++i) {
+                    masks[signature.order()[i]] = context.possibility_masks[base_offset + i];
+                }
+                synchronized (pattern_cache) {
+                    pattern_cache.put(signature.key(), new CachedPattern(cached, masks));
+                }
+            }
+        }
+        if (null == block_cache) {
+            return;
+        }
+        int id = block_cache.blocks.size();
+        block_cache.blocks.add(cached);
+        for (int i = 0; i < block.size(); ++i) {
+            Pair<Integer, Integer> point = block.get(i);
+            block_cache.block_ids[point.getFirst()][point.getSecond()] = id;
+            block_cache.masks[point.getFirst()][point.getSecond()] = context.possibility_masks[base_offset + i];
+        }
+    }
+
+    private static final int MAX_PATTERN_BLOCK_SIZE = 32;
+    private static final int PATTERN_CACHE_CAPACITY = 4096;
+    private static final int[][] symmetries = {{1, 0, 0, 1}, {1, 0, 0, -1}, {-1, 0, 0, 1}, {-1, 0, 0, -1}, {0, 1, 1, 0}, {0, 1, -1, 0}, {0, -1, 1, 0}, {0, -1, -1, 0}};
+
+    // key encodes the block cells and the numbers around them, reduced by the mines next to them, in the
+    // smallest of the 8 rotations/reflections after translating to the origin; order[i] is the position of
+    // the i-th block cell among the cells of that encoding.
+    private record BlockSignature(String key, int[] order) {
+    }
+
+    // masks are stored in signature order.
+    private record CachedPattern(CachedBlock block, byte[] masks) {
+    }
+
+    private boolean pattern_caching = true;
+    private final LinkedHashMap<String, CachedPattern> pattern_cache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedPattern> eldest) {
+            return size() > PATTERN_CACHE_CAPACITY;
+        }
+    };
+
+    public boolean is_pattern_caching() {
+        return pattern_caching;
+    }
+
+    public void set_pattern_caching(boolean pattern_caching) {
+        this.pattern_caching = pattern_caching;
+        if (!pattern_caching) {
+            synchronized (pattern_cache) {
+                pattern_cache.clear();
+            }
+        }
+    }
+
+    private BlockSignature get_block_signature(ArrayList<Pair<Integer, Integer>> block, BitBoard board) {
+        if (!pattern_caching || block.size() > MAX_PATTERN_BLOCK_SIZE) {
+            return null;
+        }
+        // {x, y, 0, cell index} for cells, {x, y, 1 + mines still needed, -1} for numbers.
+        ArrayList<int[]> elements = new ArrayList<>();
+        HashSet<Integer> numbers = new HashSet<>();
+        for (int i = 0; i < block.size(); ++i) {
+            int x = block.get(i).getFirst();
+            int y = block.get(i).getSecond();
+            elements.add(new int[]{x, y, 0, i});
+            int around = board.get_numbers_around(x, y);
+            while (0 != around) {
+                int bit = Integer.numberOfTrailingZeros(around);
+                around &= around - 1;
+                int number_x = x + bit / 3 - 1;
+                int number_y = y + bit % 3 - 1;
+                if (numbers.add(number_x * ncols + number_y)) {
+                    elements.add(new int[]{number_x, number_y, 1 + board.get_number(number_x, number_y) - board.count_mines_around(number_x, number_y), -1});
+                }
+            }
+        }
+        String best_key = null;
+        int[] best_order = null;
+        int[][] transformed = new int[elements.size()][];
+        for (int[] symmetry : symmetries) {
+            int min_x = Integer.MAX_VALUE;
+            int min_y = Integer.MAX_VALUE;
+            for (int k = 0; k < elements.size(); ++k) {
+                int[] element = elements.get(k);
+                int x = symmetry[0] * element[0] + symmetry[1] * element[1];
+                int y = symmetry[2] * element[0] + symmetry[3] * element[1];
+                transformed[k] = new int[]{x, y, element[2], element[3]};
+                min_x = Math.min(min_x, x);
+                min_y = Math.min(min_y, y);
+            }
+            Arrays.sort(transformed, (a, b) -> a[0] != b[0] ? Integer.compare(a[0], b[0]) : Integer.compare(a[1], b[1]));
+            StringBuilder sb = new StringBuilder(3 * transformed.length);
+            for (int[] element : transformed) {
+                sb.append((char) (element[0] - min_x)).append((char) (element[1] - min_y)).append((char) element[2]);
+            }
+            String key = sb.toString();
+            if (null == best_key || key.compareTo(best_key) < 0) {
+                best_key = key;
+                best_order = new int[block.size()];
+                int rank = 0;
+                for (int[] element : transformed) {
+                    if (element[3] >= 0) {
+                        best_order[element[3]] = rank++;
+                    }
+                }
+            }
+        }
+        return new BlockSignature(best_key, best_order);
+    }
+
+    // The map with the mines found by the local rules flagged; cells they proved safe are neither flagged nor
+    // tagged for prediction, so the equations and the block ordering ignore them.
+    private char[][] get_known_mine_map() {
+        if (resolved_predictions.isEmpty()) {
+            return map;
+        }
+        char[][] known_mine_map = new char[nrows][];
+        for (int i = 0; i < nrows; ++i) {
+            known_mine_map[i] = map[i].clone();
+        }
+        for (Pair<Pair<Integer, Integer>, Character> prediction : resolved_predictions) {
+            if (MINE_FLAG == prediction.getSecond()) {
+                known_mine_map[prediction.getFirst().getFirst()][prediction.getFirst().getSecond()] = MINE_FLAG;
+            }
+        }
+        return known_mine_map;
+    }
+
+    private void add_gaussian_predictions(CellPredictions predictions, ArrayList<Pair<Pair<Integer, Integer>, Character>> gaussian_predictions) {
+        tag_predictions(predictions, PredictionTier.SEARCH);
+        for (Pair<Pair<Integer, Integer>, Character> prediction : gaussian_predictions) {
+            predictions.add(prediction.getFirst().getFirst(), prediction.getFirst().getSecond(), prediction.getSecond());
+            if (MINE_FLAG == prediction.getSecond()) {
+                ++mines_already_determined;
+            }
+        }
+        tag_predictions(predictions, PredictionTier.GAUSSIAN);
+    }
+
+    private CellPredictions search_predictions(CellPredictions predictions) {
+        int unresolved_mines = remaining_mines - resolved_mines;
+        char[][] known_mine_map = gaussian_elimination || VariableOrdering.BFS != variable_ordering ? get_known_mine_map() : null;
+        ArrayList<ArrayList<Pair<Integer, Integer>>> blocks = get_blocks_raw(known_mine_map);
+        if (incremental) {
+            begin_block_cache();
+        }
+        boolean all_blanks_included = all_points.size() == all_blanks.size();
+        int target_points_max_length = 0;
+        if (null == search_context) {
+            search_context = new SearchContext();
+        }
+        search_context.initialize_board();
+        search_context.initialize_possibility_map(all_points);
+        if (parallel_search && blocks.size() > 1) {
+            ArrayList<BlockSearchTask> tasks = new ArrayList<>();
+            for (ArrayList<Pair<Integer, Integer>> block : blocks) {
+                if (gaussian_elimination) {
+                    ArrayList<Pair<Pair<Integer, Integer>, Character>> gaussian_predictions = GaussianEliminationSolver.get_predictions_from_block(block, known_mine_map, prediction_tag);
+                    if (null == gaussian_predictions) {
+                        return null;
+                    } else if (!gaussian_predictions.isEmpty()) {
+                        add_gaussian_predictions(predictions, gaussian_predictions);
+                        continue;
+                    }
+                }
+                BlockSearchTask task = new BlockSearchTask(block, unresolved_mines, all_blanks.size());
+                task.signature = get_block_signature(block, search_context.board);
+                tasks.add(task);
+            }
+            search_blocks_in_parallel(tasks);
+            for (BlockSearchTask task : tasks) {
+                if (task.finished) {
+                    store_search_result(task.block, task.signature, task.context, 0, task.cached, unresolved_mines, all_blanks.size(), false);
+                }
+                if (task.finished && summarize_predictions_failed(task.context, task.block, 0, task.block.size(), predictions)) {
+                    return null;
+                }
+            }
+            tag_predictions(predictions, PredictionTier.SEARCH, false);
+            if (force_stopped) {
+                return predictions;
+            }
+            target_points_max_length = all_points.size();
         } else {
-            ArrayList<ArrayList<Pair<Integer, Integer>>> blocks = get_blocks_raw();
-//            ArrayList<Pair<Pair<Integer, Integer>, Character>> gaussian_predictions = GaussianEliminationSolver.get_predictions_from_blocks(blocks, map, prediction_tag);
-//            if (null == gaussian_predictions) {
-//                return null;
-//            } else if (!gaussian_predictions.isEmpty()) {
-//                return gaussian_predictions;
-//            }
-            boolean all_blanks_included = all_points.size() == all_blanks.size();
-            int target_points_max_length = 0;
-            initialize_temp_map();
-            initialize_possibility_map(all_points);
+            search_context.mine_counts_needed = 1 == blocks.size();
             for (ArrayList<Pair<Integer, Integer>> block : blocks) {
-                if (search_iterative_unfinished(block, target_points_max_length, remaining_mines - mines_already_determined, all_blanks.size() - predictions.size(), all_blanks_included && 1 == blocks.size())) {
+                if (gaussian_elimination) {
+                    ArrayList<Pair<Pair<Integer, Integer>, Character>> gaussian_predictions = GaussianEliminationSolver.get_predictions_from_block(block, known_mine_map, prediction_tag);
+                    if (null == gaussian_predictions) {
+                        return null;
+                    } else if (!gaussian_predictions.isEmpty()) {
+                        add_gaussian_predictions(predictions, gaussian_predictions);
+                        target_points_max_length += block.size();
+                        continue;
+                    }
+                }
+                int block_remaining_mines = unresolved_mines - mines_already_determined;
+                int block_number_of_blanks = all_blanks.size() - (predictions.size() - resolved_predictions.size());
+                boolean block_force_finished = all_blanks_included && 1 == blocks.size();
+                BlockSignature signature = get_block_signature(block, search_context.board);
+                CachedBlock cached = search_context.load_cached_result(block, signature, target_points_max_length, block_remaining_mines, block_number_of_blanks, block_force_finished);
+                if (null == cached && search_iterative_unfinished(block, target_points_max_length, block_remaining_mines, block_number_of_blanks, block_force_finished)) {
                     return predictions;
                 }
-                if (summarize_predictions_failed(all_points, target_points_max_length, target_points_max_length + block.size(), predictions)) {
+                store_search_result(block, signature, search_context, target_points_max_length, cached, block_remaining_mines, block_number_of_blanks, block_force_finished);
+                if (summarize_predictions_failed(search_context, all_points, target_points_max_length, target_points_max_length + block.size(), predictions)) {
                     return null;
                 }
+                tag_predictions(predictions, PredictionTier.SEARCH);
                 target_points_max_length += block.size();
             }
-            if (!force_stopped && blocks.size() != 1 && predictions.isEmpty()) {
-                initialize_possibility_map(all_points);
-                if (search_iterative_unfinished(all_points, 0, remaining_mines, all_blanks.size(), all_blanks_included)) {
-                    return predictions;
+        }
+        // The local rules' predictions come in resolved; only what the search adds counts here.
+        boolean search_found_nothing = predictions.size() == resolved_predictions.size();
+        if (!force_stopped && blocks.size() != 1 && search_found_nothing) {
+            ArrayList<BlockSearchTask> tasks = count_blocks(blocks, unresolved_mines);
+            if (force_stopped) {
+                return predictions;
+            }
+            int interior = all_blanks.size() - all_points.size();
+            MineCountCombination combination = combine_mine_counts(tasks, unresolved_mines, get_binomial_row(interior));
+            search_context.initialize_possibility_map(all_points);
+            int offset = 0;
+            for (int b = 0; b < tasks.size(); ++b) {
+                BigInteger[] weights = combination.cell_weights()[b];
+                for (int i = 0; i < weights.length; ++i) {
+                    byte mask = 0;
+                    if (weights[i].compareTo(combination.total()) < 0) {
+                        mask |= SAFE_POSSIBLE;
+                    }
+                    if (weights[i].signum() > 0) {
+                        mask |= MINE_POSSIBLE;
+                    }
+                    search_context.possibility_masks[offset + i] = mask;
                 }
-                if (summarize_predictions_failed(all_points, 0, target_points_max_length, predictions)) {
-                    return null;
+                offset += weights.length;
+            }
+            BigInteger[] frontier_counts = combination.frontier_counts();
+            for (int k = 0; k < frontier_counts.length; ++k) {
+                if (frontier_counts[k].signum() != 0 && check_final_status_valid(unresolved_mines - k, interior, all_blanks_included)) {
+                    search_context.final_remaining_mines_possibilities.set(unresolved_mines - k);
                 }
             }
-            if (!force_stopped && predictions.isEmpty() && 1 == final_remaining_mines_possibilities.size()) {
-                int final_remaining_mines = final_remaining_mines_possibilities.iterator().next();
-                if (0 == final_remaining_mines) {
-                    for (Pair<Integer, Integer> point : all_blanks) {
-                        if (!prediction_tag[point.getFirst()][point.getSecond()]) {
-                            predictions.add(new Pair<>(point, ZERO));
-                        }
+            if (summarize_predictions_failed(search_context, all_points, 0, target_points_max_length, predictions)) {
+                return null;
+            }
+        }
+        if (!force_stopped && search_found_nothing && 1 == search_context.final_remaining_mines_possibilities.cardinality()) {
+            int final_remaining_mines = search_context.final_remaining_mines_possibilities.nextSetBit(0);
+            if (0 == final_remaining_mines) {
+                for (Pair<Integer, Integer> point : all_blanks) {
+                    if (!prediction_tag[point.getFirst()][point.getSecond()]) {
+                        predictions.add(point.getFirst(), point.getSecond(), ZERO);
                     }
-                } else if (all_blanks.size() - all_points.size() == final_remaining_mines) {
-                    for (Pair<Integer, Integer> point : all_blanks) {
-                        if (!prediction_tag[point.getFirst()][point.getSecond()]) {
-                            predictions.add(new Pair<>(point, MINE_FLAG));
-                        }
+                }
+            } else if (all_blanks.size() - all_points.size() == final_remaining_mines) {
+                for (Pair<Integer, Integer> point : all_blanks) {
+                    if (!prediction_tag[point.getFirst()][point.getSecond()]) {
+                        predictions.add(point.getFirst(), point.getSecond(), MINE_FLAG);
                     }
                 }
             }
@@ -851,34 +2014,226 @@ public class MinesweeperState {
         return predictions;
     }
 
-    private Timer timer;
-    private TimerTask task;
+    private static BigInteger[] get_binomial_row(int n) {
+        BigInteger[] row = new BigInteger[n + 1];
+        row[0] = BigInteger.ONE;
+        for (int k = 1; k <= n; ++k) {
+            row[k] = row[k - 1].multiply(BigInteger.valueOf(n - k + 1)).divide(BigInteger.valueOf(k));
+        }
+        return row;
+    }
 
-    public ArrayList<Pair<Pair<Integer, Integer>, Character>> limit_time_get_prediction(int time_upper_limit) {
-        if (null != task) {
-            task.cancel();
+    private static BigInteger[] convolve(BigInteger[] a, BigInteger[] b) {
+        BigInteger[] result = new BigInteger[a.length + b.length - 1];
+        Arrays.fill(result, BigInteger.ZERO);
+        for (int i = 0; i < a.length; ++i) {
+            if (a[i].signum() == 0) {
+                continue;
+            }
+            for (int j = 0; j < b.length; ++j) {
+                if (b[j].signum() != 0) {
+                    result[i + j] = result[i + j].add(a[i].multiply(b[j]));
+                }
+            }
         }
-        if (null != timer) {
-            timer.cancel();
+        return result;
+    }
+
+    private static BigInteger[] to_big_integers(long[] counts) {
+        BigInteger[] result = new BigInteger[counts.length];
+        for (int i = 0; i < counts.length; ++i) {
+            result[i] = BigInteger.valueOf(counts[i]);
         }
-        timer = new Timer(true);
-        task = new TimerTask() {
-            @Override
-            public void run() {
-                force_stopped = true;
+        return result;
+    }
+
+    private static BigInteger get_interior_weight(BigInteger[] counts, int remaining_mines, BigInteger[] binomial_row) {
+        BigInteger weight = BigInteger.ZERO;
+        for (int s = 0; s < counts.length; ++s) {
+            int interior_mines = remaining_mines - s;
+            if (interior_mines >= 0 && interior_mines < binomial_row.length && counts[s].signum() != 0) {
+                weight = weight.add(counts[s].multiply(binomial_row[interior_mines]));
             }
-        };
-        timer.schedule(task, time_upper_limit);
-        ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions;
+        }
+        return weight;
+    }
+
+    // Every block enumerated on its own, counting its solutions per block mine total.
+    private ArrayList<BlockSearchTask> count_blocks(ArrayList<ArrayList<Pair<Integer, Integer>>> blocks, int remaining_mines) {
+        ArrayList<BlockSearchTask> tasks = new ArrayList<>();
+        for (ArrayList<Pair<Integer, Integer>> block : blocks) {
+            tasks.add(new BlockSearchTask(block, remaining_mines, all_blanks.size(), true));
+        }
+        if (parallel_search && tasks.size() > 1) {
+            search_blocks_in_parallel(tasks);
+        } else {
+            for (BlockSearchTask task : tasks) {
+                task.invoke();
+            }
+        }
+        return tasks;
+    }
+
+    // frontier_counts[k] counts the frontier solutions with k mines; total and cell_weights[b][i] count the whole
+    // boards, interior included, and those of them with cell i of block b a mine.
+    private record MineCountCombination(BigInteger[] frontier_counts, BigInteger total, BigInteger[][] cell_weights) {
+    }
+
+    private static MineCountCombination combine_mine_counts(ArrayList<BlockSearchTask> tasks, int remaining_mines, BigInteger[] interior_binomial_row) {
+        BigInteger[][] prefix = new BigInteger[tasks.size() + 1][];
+        BigInteger[][] suffix = new BigInteger[tasks.size() + 1][];
+        prefix[0] = new BigInteger[]{BigInteger.ONE};
+        suffix[tasks.size()] = new BigInteger[]{BigInteger.ONE};
+        for (int b = 0; b < tasks.size(); ++b) {
+            prefix[b + 1] = convolve(prefix[b], to_big_integers(tasks.get(b).context.mine_count_histogram));
+        }
+        for (int b = tasks.size() - 1; b >= 0; --b) {
+            suffix[b] = convolve(to_big_integers(tasks.get(b).context.mine_count_histogram), suffix[b + 1]);
+        }
+        BigInteger total = get_interior_weight(prefix[tasks.size()], remaining_mines, interior_binomial_row);
+        BigInteger[][] cell_weights = new BigInteger[tasks.size()][];
+        for (int b = 0; b < tasks.size(); ++b) {
+            BlockSearchTask task = tasks.get(b);
+            BigInteger[] others = convolve(prefix[b], suffix[b + 1]);
+            BigInteger[] weights = new BigInteger[task.block.size() + 1];
+            for (int m = 0; m < weights.length; ++m) {
+                weights[m] = get_interior_weight(others, remaining_mines - m, interior_binomial_row);
+            }
+            cell_weights[b] = new BigInteger[task.block.size()];
+            for (int i = 0; i < task.block.size(); ++i) {
+                BigInteger numerator = BigInteger.ZERO;
+                long[] tallies = task.context.cell_mine_tallies[i];
+                for (int m = 0; m < tallies.length; ++m) {
+                    if (0 != tallies[m]) {
+                        numerator = numerator.add(BigInteger.valueOf(tallies[m]).multiply(weights[m]));
+                    }
+                }
+                cell_weights[b][i] = numerator;
+            }
+        }
+        return new MineCountCombination(prefix[tasks.size()], total, cell_weights);
+    }
+
+    private static double get_ratio(BigInteger numerator, BigInteger denominator) {
+        if (numerator.signum() == 0) {
+            return 0;
+        } else if (numerator.equals(denominator)) {
+            return 1;
+        }
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), MathContext.DECIMAL64).doubleValue();
+    }
+
+    public double[][] get_mine_probabilities() {
+        initialize_get_predictions();
+        double[][] probabilities = new double[nrows][ncols];
+        for (double[] row : probabilities) {
+            Arrays.fill(row, Double.NaN);
+        }
+        if (all_blanks.isEmpty()) {
+            return probabilities;
+        }
+        ArrayList<BlockSearchTask> tasks = count_blocks(get_blocks_raw(), remaining_mines);
+        if (force_stopped) {
+            return null;
+        }
+        int interior = all_blanks.size() - all_points.size();
+        MineCountCombination combination = combine_mine_counts(tasks, remaining_mines, get_binomial_row(interior));
+        BigInteger total = combination.total();
+        if (total.signum() == 0) {
+            return null;
+        }
+        for (int b = 0; b < tasks.size(); ++b) {
+            ArrayList<Pair<Integer, Integer>> block = tasks.get(b).block;
+            for (int i = 0; i < block.size(); ++i) {
+                Pair<Integer, Integer> point = block.get(i);
+                probabilities[point.getFirst()][point.getSecond()] = get_ratio(combination.cell_weights()[b][i], total);
+            }
+        }
+        if (interior > 0) {
+            double interior_probability = get_ratio(get_interior_weight(combination.frontier_counts(), remaining_mines - 1, get_binomial_row(interior - 1)), total);
+            for (Pair<Integer, Integer> point : all_blanks) {
+                if (!prediction_tag[point.getFirst()][point.getSecond()]) {
+                    probabilities[point.getFirst()][point.getSecond()] = interior_probability;
+                }
+            }
+        }
+        return probabilities;
+    }
+
+    public static Pair<Pair<Integer, Integer>, Character> get_least_risky_guess(double[][] probabilities) {
+        Pair<Pair<Integer, Integer>, Character> guess = null;
+        double min_probability = Double.MAX_VALUE;
+        for (int i = 0; i < probabilities.length; ++i) {
+            for (int j = 0; j < probabilities[i].length; ++j) {
+                if (!Double.isNaN(probabilities[i][j]) && probabilities[i][j] < min_probability) {
+                    min_probability = probabilities[i][j];
+                    guess = new Pair<>(new Pair<>(i, j), ZERO);
+                }
+            }
+        }
+        return guess;
+    }
+
+    private static final int STOP_POLL_MASK = 255;
+
+    private boolean execution_expired() {
+        CancellationToken token = cancellation_token;
+        if ((null != token && token.is_cancelled()) || (has_deadline && System.nanoTime() - deadline >= 0)) {
+            force_stopped = true;
+        }
+        return force_stopped;
+    }
+
+    private void start_execution(Duration budget, CancellationToken token) {
+        cancellation_token = token;
+        if (null != budget) {
+            deadline = System.nanoTime() + budget.toNanos();
+        }
+        has_deadline = null != budget;
+    }
+
+    private void stop_execution() {
+        has_deadline = false;
+        cancellation_token = null;
+    }
+
+    public boolean is_force_stopped() {
+        return force_stopped;
+    }
+
+    public double[][] get_mine_probabilities(Duration budget, CancellationToken token) {
+        start_execution(budget, token);
         try {
-            predictions = get_predictions();
+            return get_mine_probabilities();
         } finally {
-            task.cancel();
-            task = null;
-            timer.cancel();
-            timer = null;
+            stop_execution();
         }
-        return predictions;
+    }
+
+    public CellPredictions get_cell_predictions(Duration budget, CancellationToken token) {
+        start_execution(budget, token);
+        try {
+            return get_cell_predictions();
+        } finally {
+            stop_execution();
+        }
+    }
+
+    public ArrayList<Pair<Pair<Integer, Integer>, Character>> get_predictions(Duration budget, CancellationToken token) {
+        CellPredictions predictions = get_cell_predictions(budget, token);
+        return null == predictions ? null : predictions.to_pairs();
+    }
+
+    public double[][] limit_time_get_mine_probabilities(int time_upper_limit) {
+        return get_mine_probabilities(Duration.ofMillis(time_upper_limit), null);
+    }
+
+    public ArrayList<Pair<Pair<Integer, Integer>, Character>> limit_time_get_prediction(int time_upper_limit) {
+        return get_predictions(Duration.ofMillis(time_upper_limit), null);
+    }
+
+    public CellPredictions limit_time_get_cell_predictions(int time_upper_limit) {
+        return get_cell_predictions(Duration.ofMillis(time_upper_limit), null);
     }
 
     public static void main(String[] args) {
@@ -34,7 +34,7 @@ public class Pair<T1, T2> {
 
     @Override
     public int hashCode() {
-        return java.util.Objects.hash(first, second);
+        return 31 * (31 + Objects.hashCode(first)) + Objects.hashCode(second);
     }
 
     @Override
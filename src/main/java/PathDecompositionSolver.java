@@ -0,0 +1,380 @@
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+// Dynamic programming over a path decomposition of a block: cells are placed in order, and a state holds how many
+// mines each number still open at that point has received. Work is linear in the block length for thin frontiers.
+// Cells are numbered 0..n-1 and numbers 0..m-1; cell_numbers[p] lists the numbers next to cell p, number_cells[q]
+// the cells next to number q, and needed[q] how many of those cells are mines.
+public class PathDecompositionSolver {
+    static final long STATE_LIMIT = 1 << 12;
+    static final long WORK_LIMIT = 1 << 22;
+
+    // configurations[k] counts solutions with k mines; masks[p] has bit 1 if cell p can be safe and bit 2 if it can
+    // be a mine, over mine totals allowed by admissible; mine_tallies[p][k] counts solutions with cell p a mine.
+    public record Result(long[] configurations, byte[] masks, long[][] mine_tallies, long expanded_states) {
+    }
+
+    private final int[][] cell_numbers;
+    private final int[][] number_cells;
+    private final int[] needed;
+    private final int[] order;
+    private final int n;
+    private final int m;
+    private final boolean exact;
+    private final int[][] actives;
+    private final long[][] strides;
+    private final int[][] slots;
+    private final int[][] left;
+
+    private PathDecompositionSolver(int[][] cell_numbers, int[][] number_cells, int[] needed, int[] order, boolean exact) {
+        this.cell_numbers = cell_numbers;
+        this.number_cells = number_cells;
+        this.needed = needed;
+        this.order = order;
+        this.exact = exact;
+        n = order.length;
+        m = number_cells.length;
+        int[] first = new int[m];
+        int[] last = new int[m];
+        Arrays.fill(first, n);
+        Arrays.fill(last, -1);
+        for (int t = 0; t < n; ++t) {
+            for (int q : cell_numbers[order[t]]) {
+                first[q] = Math.min(first[q], t);
+                last[q] = Math.max(last[q], t);
+            }
+        }
+        // Layer t is the state after the first t cells; number q is open in it if first[q] < t <= last[q].
+        actives = new int[n + 1][];
+        strides = new long[n + 1][];
+        slots = new int[n + 1][];
+        left = new int[n + 1][];
+        int[] remaining = new int[m];
+        for (int q = 0; q < m; ++q) {
+            remaining[q] = number_cells[q].length;
+        }
+        for (int t = 0; t <= n; ++t) {
+            if (t > 0) {
+                for (int q : cell_numbers[order[t - 1]]) {
+                    --remaining[q];
+                }
+            }
+            left[t] = remaining.clone();
+            slots[t] = new int[m];
+            Arrays.fill(slots[t], -1);
+            int count = 0;
+            for (int q = 0; q < m; ++q) {
+                if (first[q] < t && t <= last[q]) {
+                    ++count;
+                }
+            }
+            actives[t] = new int[count];
+            strides[t] = new long[count];
+            long stride = 1;
+            count = 0;
+            for (int q = 0; q < m; ++q) {
+                if (first[q] < t && t <= last[q]) {
+                    slots[t][q] = count;
+                    actives[t][count] = q;
+                    strides[t][count] = stride;
+                    stride = stride > STATE_LIMIT ? stride : stride * (needed[q] + 1);
+                    ++count;
+                }
+            }
+        }
+    }
+
+    // Sum over layers of the state bound times the mine-count vector length, or Long.MAX_VALUE past the limits.
+    public static long get_cost(int[][] cell_numbers, int[][] number_cells, int[] needed, int[] order) {
+        int n = order.length;
+        int m = number_cells.length;
+        int[] first = new int[m];
+        int[] last = new int[m];
+        Arrays.fill(first, n);
+        Arrays.fill(last, -1);
+        for (int t = 0; t < n; ++t) {
+            for (int q : cell_numbers[order[t]]) {
+                first[q] = Math.min(first[q], t);
+                last[q] = Math.max(last[q], t);
+            }
+        }
+        for (int q = 0; q < m; ++q) {
+            if (needed[q] < 0 || needed[q] > number_cells[q].length) {
+                return 0;
+            }
+        }
+        long cost = 0;
+        double states = 1;
+        for (int t = 0; t <= n; ++t) {
+            for (int q = 0; q < m; ++q) {
+                if (first[q] + 1 == t && last[q] >= t) {
+                    states *= needed[q] + 1;
+                }
+                if (last[q] + 1 == t && first[q] + 1 < t) {
+                    states /= needed[q] + 1;
+                }
+            }
+            if (states > STATE_LIMIT) {
+                return Long.MAX_VALUE;
+            }
+            cost += (long) states * (t + 1);
+            if (cost > WORK_LIMIT) {
+                return Long.MAX_VALUE;
+            }
+        }
+        return cost;
+    }
+
+    // Breadth-first order from a pseudo-peripheral cell, so that a long wall is swept from one end.
+    public static int[] get_peripheral_order(int[][] cell_numbers, int[][] number_cells) {
+        int[] order = get_bfs_order(cell_numbers, number_cells, 0);
+        return get_bfs_order(cell_numbers, number_cells, order[order.length - 1]);
+    }
+
+    private static int[] get_bfs_order(int[][] cell_numbers, int[][] number_cells, int root) {
+        int n = cell_numbers.length;
+        int[] order = new int[n];
+        boolean[] visited = new boolean[n];
+        int count = 0;
+        for (int start = root, next = 0; count < n; start = next) {
+            while (visited[start]) {
+                start = ++next;
+            }
+            ArrayDeque<Integer> queue = new ArrayDeque<>();
+            queue.add(start);
+            visited[start] = true;
+            while (!queue.isEmpty()) {
+                int p = queue.poll();
+                order[count++] = p;
+                for (int q : cell_numbers[p]) {
+                    for (int r : number_cells[q]) {
+                        if (!visited[r]) {
+                            visited[r] = true;
+                            queue.add(r);
+                        }
+                    }
+                }
+            }
+        }
+        return order;
+    }
+
+    private long add(long a, long b) {
+        if (exact) {
+            return Math.addExact(a, b);
+        }
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    private long multiply(long a, long b) {
+        if (exact) {
+            return Math.multiplyExact(a, b);
+        }
+        long high = Math.multiplyHigh(a, b);
+        long product = a * b;
+        return 0 != high || product < 0 ? Long.MAX_VALUE : product;
+    }
+
+    // The code of the state reached from state code in layer t by making cell order[t] a mine (x = 1) or safe, or -1.
+    private long transition(int t, long code, int x) {
+        int cell = order[t];
+        for (int q : cell_numbers[cell]) {
+            int slot = slots[t][q];
+            int digit = -1 == slot ? x : (int) (code / strides[t][slot] % (needed[q] + 1)) + x;
+            if (digit > needed[q] || needed[q] - digit > left[t + 1][q]) {
+                return -1;
+            }
+        }
+        long next = 0;
+        int[] next_actives = actives[t + 1];
+        for (int j = 0; j < next_actives.length; ++j) {
+            int q = next_actives[j];
+            int slot = slots[t][q];
+            int digit = -1 == slot ? 0 : (int) (code / strides[t][slot] % (needed[q] + 1));
+            next += (long) digit * strides[t + 1][j];
+        }
+        for (int q : cell_numbers[cell]) {
+            int slot = slots[t + 1][q];
+            if (-1 != slot) {
+                next += x * strides[t + 1][slot];
+            }
+        }
+        return next;
+    }
+
+    private static final class Layer {
+        private final long[] keys;
+        private final int[] table;
+        private int size = 0;
+        private long[] codes = new long[8];
+        private long[][] counts = new long[8][];
+
+        private Layer(long bound) {
+            int capacity = Integer.highestOneBit((int) Math.min(STATE_LIMIT, bound) * 2 + 1) << 1;
+            keys = new long[capacity];
+            table = new int[capacity];
+            Arrays.fill(table, -1);
+        }
+
+        private int find(long code) {
+            int mask = table.length - 1;
+            int h = (int) (code ^ (code >>> 29)) * 0x9E3779B1 & mask;
+            while (-1 != table[h] && keys[h] != code) {
+                h = (h + 1) & mask;
+            }
+            return h;
+        }
+
+        private int index_of(long code) {
+            return table[find(code)];
+        }
+
+        private long[] get_or_add(long code, int length) {
+            int h = find(code);
+            if (-1 == table[h]) {
+                if (size == codes.length) {
+                    codes = Arrays.copyOf(codes, size * 2);
+                    counts = Arrays.copyOf(counts, size * 2);
+                }
+                keys[h] = code;
+                table[h] = size;
+                codes[size] = code;
+                counts[size] = new long[length];
+                ++size;
+            }
+            return counts[table[h]];
+        }
+    }
+
+    private long get_bound(int t) {
+        long bound = 1;
+        for (int q : actives[t]) {
+            bound = Math.min(STATE_LIMIT, bound * (needed[q] + 1));
+        }
+        return bound;
+    }
+
+    private Result solve(boolean[] admissible, boolean counting, BooleanSupplier stopped) {
+        Layer[] layers = new Layer[n + 1];
+        layers[0] = new Layer(1);
+        layers[0].get_or_add(0, 1)[0] = 1;
+        long expanded_states = 0;
+        for (int t = 0; t < n; ++t) {
+            if (stopped.getAsBoolean()) {
+                return null;
+            }
+            Layer layer = layers[t];
+            Layer next = new Layer(get_bound(t + 1));
+            for (int s = 0; s < layer.size; ++s) {
+                ++expanded_states;
+                long[] from = layer.counts[s];
+                for (int x = 0; x <= 1; ++x) {
+                    long code = transition(t, layer.codes[s], x);
+                    if (-1 != code) {
+                        long[] to = next.get_or_add(code, t + 2);
+                        for (int k = 0; k <= t; ++k) {
+                            if (0 != from[k]) {
+                                to[k + x] = add(to[k + x], from[k]);
+                            }
+                        }
+                    }
+                }
+            }
+            layers[t + 1] = next;
+        }
+        long[] configurations = new long[n + 1];
+        if (1 == layers[n].size) {
+            configurations = layers[n].counts[0];
+        }
+        boolean binding = counting;
+        for (int k = 0; k <= n; ++k) {
+            binding |= 0 != configurations[k] && !admissible[k];
+        }
+        byte[] masks = new byte[n];
+        long[][] mine_tallies = counting ? new long[n][n + 1] : null;
+        // Backward pass: completions[s][k] counts ways to finish from state s of layer t + 1 with k more mines.
+        long[][] completions = new long[layers[n].size][];
+        for (int s = 0; s < layers[n].size; ++s) {
+            completions[s] = new long[]{1};
+        }
+        for (int t = n - 1; t >= 0; --t) {
+            if (stopped.getAsBoolean()) {
+                return null;
+            }
+            Layer layer = layers[t];
+            Layer next = layers[t + 1];
+            long[][] current = new long[layer.size][n - t + 1];
+            long[][] tallies = new long[2][n + 1];
+            for (int s = 0; s < layer.size; ++s) {
+                long[] from = layer.counts[s];
+                long from_total = 0;
+                if (!binding) {
+                    for (long count : from) {
+                        from_total = add(from_total, count);
+                    }
+                }
+                for (int x = 0; x <= 1; ++x) {
+                    long code = transition(t, layer.codes[s], x);
+                    if (-1 == code) {
+                        continue;
+                    }
+                    long[] after = completions[next.index_of(code)];
+                    for (int k = 0; k < after.length; ++k) {
+                        if (0 != after[k]) {
+                            current[s][k + x] = add(current[s][k + x], after[k]);
+                        }
+                    }
+                    if (binding) {
+                        for (int k1 = 0; k1 < from.length; ++k1) {
+                            if (0 == from[k1]) {
+                                continue;
+                            }
+                            for (int k2 = 0; k2 < after.length; ++k2) {
+                                if (0 != after[k2]) {
+                                    int k = k1 + x + k2;
+                                    tallies[x][k] = add(tallies[x][k], multiply(from[k1], after[k2]));
+                                }
+                            }
+                        }
+                    } else {
+                        long after_total = 0;
+                        for (long count : after) {
+                            after_total = add(after_total, count);
+                        }
+                        tallies[x][0] = add(tallies[x][0], multiply(from_total, after_total));
+                    }
+                }
+            }
+            completions = current;
+            int cell = order[t];
+            for (int k = 0; k <= n; ++k) {
+                if (binding && !admissible[k]) {
+                    continue;
+                }
+                if (0 != tallies[0][k]) {
+                    masks[cell] |= 1;
+                }
+                if (0 != tallies[1][k]) {
+                    masks[cell] |= 2;
+                }
+                if (counting) {
+                    mine_tallies[cell][k] = tallies[1][k];
+                }
+            }
+        }
+        return new Result(configurations, masks, mine_tallies, expanded_states);
+    }
+
+    // Returns null if stopped. With counting the counts are exact and an ArithmeticException reports an overflow;
+    // otherwise they saturate at Long.MAX_VALUE and only tell whether solutions exist.
+    public static Result solve(int[][] cell_numbers, int[][] number_cells, int[] needed, int[] order, boolean[] admissible, boolean counting, BooleanSupplier stopped) {
+        for (int q = 0; q < number_cells.length; ++q) {
+            if (needed[q] < 0 || needed[q] > number_cells[q].length) {
+                return new Result(new long[order.length + 1], new byte[order.length], counting ? new long[order.length][order.length + 1] : null, 0);
+            }
+        }
+        return new PathDecompositionSolver(cell_numbers, number_cells, needed, order, counting).solve(admissible, counting, stopped);
+    }
+}
@@ -1,5 +1,6 @@
 import java.util.ArrayList;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class RGB {
     public static final double CIRCLE_RATIO = 1;
@@ -23,6 +24,42 @@ public class RGB {
         return Math.sqrt((2 + rmean / 256) * (R * R) + 4 * (G * G) + (2 + (255 - rmean) / 256) * (B * B));
     }
 
+    public static int pack(int[] rgb) {
+        return rgb[0] << 16 | rgb[1] << 8 | rgb[2];
+    }
+
+    public static int[] pack(int[][] colors) {
+        int[] packed_colors = new int[colors.length];
+        for (int i = 0; i < colors.length; ++i) {
+            packed_colors[i] = pack(colors[i]);
+        }
+        return packed_colors;
+    }
+
+    // The same distance as for int[] colours, on 0xRRGGBB ints.
+    public static double rgb_distance(int rgb_1, int rgb_2) {
+        int red_1 = rgb_1 >> 16 & 0xff;
+        int red_2 = rgb_2 >> 16 & 0xff;
+        int R = red_1 - red_2;
+        int G = (rgb_1 >> 8 & 0xff) - (rgb_2 >> 8 & 0xff);
+        int B = (rgb_1 & 0xff) - (rgb_2 & 0xff);
+        double rmean = (red_1 + red_2) / 2.0;
+        return Math.sqrt((2 + rmean / 256) * (R * R) + 4 * (G * G) + (2 + (255 - rmean) / 256) * (B * B));
+    }
+
+    public static boolean rgb_similar(int rgb_1, int rgb_2, double threshold) {
+        return rgb_distance(rgb_1, rgb_2) <= threshold;
+    }
+
+    public static boolean rgb_similar_to_any(int rgb, int[] packed_colors, double threshold) {
+        for (int color : packed_colors) {
+            if (rgb_similar(rgb, color, threshold)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     public static double rgb_distance(double[] rgb_1, double[] rgb_2) {
         double R = rgb_1[0] - rgb_2[0];
         double G = rgb_1[1] - rgb_2[1];
@@ -165,6 +202,57 @@ public class RGB {
         }
     }
 
+    private static final ConcurrentHashMap<Long, int[]> corresponding_coordinates = new ConcurrentHashMap<>();
+
+    // Shared between threads and never modified once built.
+    private static int[] get_corresponding_coordinates(int length, int new_length) {
+        return corresponding_coordinates.computeIfAbsent((long) length << 32 | new_length, key -> {
+            int[] coordinates = new int[length];
+            for (int i = 0; i < length; ++i) {
+                coordinates[i] = get_corresponding_position(i, 0, length, 1, new_length, 1)[0];
+            }
+            return coordinates;
+        });
+    }
+
+    public static double picture_average_distance_sorted(ScreenData big_picture, ScreenData small_picture) {
+        assert big_picture.width * big_picture.height >= small_picture.width * small_picture.height;
+        int[] corresponding_x = get_corresponding_coordinates(big_picture.width, small_picture.width);
+        int[] corresponding_y = get_corresponding_coordinates(big_picture.height, small_picture.height);
+        double sum = 0;
+        for (int i = 0; i < big_picture.width; ++i) {
+            for (int j = 0; j < big_picture.height; ++j) {
+                sum += rgb_distance(big_picture.get_rgb(i, j), small_picture.get_rgb(corresponding_x[i], corresponding_y[j]));
+            }
+        }
+        return sum / (big_picture.width * big_picture.height);
+    }
+
+    public static double picture_average_distance(ScreenData picture_1, ScreenData picture_2) {
+        assert picture_1 != null && picture_2 != null;
+        if (picture_1.width * picture_1.height >= picture_2.width * picture_2.height) {
+            return picture_average_distance_sorted(picture_1, picture_2);
+        } else {
+            return picture_average_distance_sorted(picture_2, picture_1);
+        }
+    }
+
+    // 64-bit FNV-1a hash of the size and then the pixels, row by row.
+    public static long picture_hash(ScreenData picture) {
+        long hash = 0xcbf29ce484222325L;
+        hash ^= picture.width;
+        hash *= 0x100000001b3L;
+        hash ^= picture.height;
+        hash *= 0x100000001b3L;
+        for (int y = 0; y < picture.height; ++y) {
+            for (int x = 0; x < picture.width; ++x) {
+                hash ^= picture.get_rgb(x, y);
+                hash *= 0x100000001b3L;
+            }
+        }
+        return hash;
+    }
+
     public static boolean rgb_equal_to_any(int[] rgb, int[][] colors) {
         for (int[] color : colors) {
             if (rgb_equal(rgb, color)) {
@@ -252,6 +340,73 @@ public class RGB {
         }
     }
 
+    private static final ThreadLocal<int[]> thread_stack = new ThreadLocal<>();
+
+    // Bounding box {width_l, width_r, height_l, height_r} of the similar-coloured pixels connected to (i, j);
+    // past is indexed by (y - height_l) * (width_r - width_l) + x - width_l.
+    private static int[] dfs_similar_color_bounds(ScreenData screen, boolean[] past, int i, int j, int width_l, int width_r, int height_l, int height_r, int[] packed_colors, double threshold) {
+        int region_width = width_r - width_l;
+        int[] stack = thread_stack.get();
+        if (null == stack || stack.length < past.length) {
+            stack = new int[past.length];
+            thread_stack.set(stack);
+        }
+        int w_l = Integer.MAX_VALUE, w_r = 0, h_l = Integer.MAX_VALUE, h_r = 0;
+        int stack_pointer = 0;
+        stack[stack_pointer++] = (j - height_l) * region_width + i - width_l;
+        past[stack[0]] = true;
+        while (stack_pointer != 0) {
+            int index = stack[--stack_pointer];
+            i = width_l + index % region_width;
+            j = height_l + index / region_width;
+            if (rgb_similar_to_any(screen.get_rgb(i, j), packed_colors, threshold)) {
+                w_l = Math.min(w_l, i);
+                w_r = Math.max(w_r, i + 1);
+                h_l = Math.min(h_l, j);
+                h_r = Math.max(h_r, j + 1);
+                for (int[] vector : unit_vectors) {
+                    int new_i = i + vector[0];
+                    int new_j = j + vector[1];
+                    if (new_i >= width_l && new_i < width_r && new_j >= height_l && new_j < height_r) {
+                        int new_index = (new_j - height_l) * region_width + new_i - width_l;
+                        if (!past[new_index]) {
+                            past[new_index] = true;
+                            stack[stack_pointer++] = new_index;
+                        }
+                    }
+                }
+            }
+        }
+        return 0 == w_r ? null : new int[]{w_l, w_r, h_l, h_r};
+    }
+
+    // Bounding boxes of the connected blocks of similar-coloured pixels, in the order the pixel lists of
+    // find_similar_color_blocks would come.
+    public static ArrayList<int[]> find_similar_color_block_bounds(ScreenData screen, int width_l, int width_r, int height_l, int height_r, int[][] colors, double threshold) {
+        assert colors != null && colors[0] != null && colors[0].length == 3;
+        assert width_l >= 0 && height_l >= 0 && width_r <= screen.width && height_r <= screen.height;
+        assert width_r > width_l && height_r > height_l;
+        int[] packed_colors = pack(colors);
+        boolean[] past = new boolean[(width_r - width_l) * (height_r - height_l)];
+        ArrayList<int[]> bounds = new ArrayList<>();
+        for (int i = width_l; i < width_r; ++i) {
+            for (int j = height_l; j < height_r; ++j) {
+                if (!past[(j - height_l) * (width_r - width_l) + i - width_l]) {
+                    int[] block_bounds = dfs_similar_color_bounds(screen, past, i, j, width_l, width_r, height_l, height_r, packed_colors, threshold);
+                    if (block_bounds != null) {
+                        bounds.add(block_bounds);
+                    }
+                }
+            }
+        }
+        return bounds;
+    }
+
+    // A zero distance means the colours are equal.
+    public static ArrayList<int[]> find_equal_color_block_bounds(ScreenData screen, int width_l, int width_r, int height_l, int height_r, int[][] colors) {
+        return find_similar_color_block_bounds(screen, width_l, width_r, height_l, height_r, colors, 0);
+    }
+
     public static ArrayList<int[]> find_equal_colors_block(int[][][] map, boolean[][] past, int i, int j, int width_l, int width_r, int height_l, int height_r, int[][] colors) {
         ArrayList<int[]> block = new ArrayList<>();
         dfs_equal_color(map, past, block, i, j, width_l, width_r, height_l, height_r, colors);
@@ -0,0 +1,46 @@
+public class ScanBenchmark {
+    // Best of five calibrated scans per mode, with the diff and the fingerprint lookup off so that every cell is
+    // matched against the templates.
+    static void compare_parallel_scanning() {
+        System.out.printf("%-14s%20s%20s%20s%n", "board", "sequential ms", "parallel ms", "speedup");
+        long sequential_total = 0;
+        long parallel_total = 0;
+        for (String name : SearchBenchmark.names) {
+            ScreenData screen = ScreenCapture.load_screen_from_file("test_images/" + name + ".png");
+            MinesweeperScanner minesweeperScanner = new MinesweeperScanner(30, 16);
+            minesweeperScanner.set_diff_scanning(false);
+            minesweeperScanner.set_fingerprint_lookup(false);
+            String expected = null;
+            long[] times = new long[2];
+            try {
+                for (int mode = 0; mode < 2; ++mode) {
+                    minesweeperScanner.set_parallel_scanning(1 == mode);
+                    long best_time = Long.MAX_VALUE;
+                    String actual = null;
+                    for (int run = 0; run < 5; ++run) {
+                        long start_time = System.nanoTime();
+                        actual = minesweeperScanner.scan(screen).toString();
+                        best_time = Math.min(best_time, System.nanoTime() - start_time);
+                    }
+                    times[mode] = best_time / 1000000;
+                    if (null == expected) {
+                        expected = actual;
+                    } else if (!expected.equals(actual)) {
+                        System.out.println(name + ": the parallel scan disagrees with the sequential one");
+                    }
+                }
+            } catch (IllegalMapException e) {
+                System.out.println(name + ": skipped, the board is invalid");
+                continue;
+            }
+            sequential_total += times[0];
+            parallel_total += times[1];
+            System.out.printf("%-14s%20d%20d%20.2f%n", name, times[0], times[1], times[0] / (double) Math.max(1, times[1]));
+        }
+        System.out.printf("%-14s%20d%20d%20.2f%n", "total", sequential_total, parallel_total, sequential_total / (double) Math.max(1, parallel_total));
+    }
+
+    public static void main(String[] args) {
+        compare_parallel_scanning();
+    }
+}
@@ -5,11 +5,23 @@ import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.Dimension;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 
 public class ScreenCapture {
+    private static Robot robot;
+
+    private static synchronized Robot get_robot() throws AWTException {
+        if (null == robot) {
+            robot = new Robot();
+        }
+        return robot;
+    }
+
     public static BufferedImage load_image_from_file(String file_path) {
         if (file_path.charAt(0) != '/') {
             file_path = '/' + file_path;
@@ -43,8 +55,23 @@ public class ScreenCapture {
         return rgb_array;
     }
 
+    // Images already stored as packed ints, such as screen captures, are wrapped without copying.
+    public static ScreenData convert_image_to_screen(BufferedImage image, int origin_x, int origin_y) {
+        if (BufferedImage.TYPE_INT_RGB == image.getType() || BufferedImage.TYPE_INT_ARGB == image.getType()) {
+            WritableRaster raster = image.getRaster();
+            if (raster.getDataBuffer() instanceof DataBufferInt buffer && raster.getSampleModel() instanceof SinglePixelPackedSampleModel sample_model) {
+                int stride = sample_model.getScanlineStride();
+                int offset = buffer.getOffset() - raster.getSampleModelTranslateY() * stride - raster.getSampleModelTranslateX();
+                return new ScreenData(image.getWidth(), image.getHeight(), buffer.getData(), offset, stride, origin_x, origin_y);
+            }
+        }
+        int[] pixels = new int[image.getWidth() * image.getHeight()];
+        image.getRGB(0, 0, image.getWidth(), image.getHeight(), pixels, 0, image.getWidth());
+        return new ScreenData(image.getWidth(), image.getHeight(), pixels, 0, image.getWidth(), origin_x, origin_y);
+    }
+
     public static ScreenData convert_image_to_screen(BufferedImage image) {
-        return new ScreenData(image.getWidth(), image.getHeight(), convert_image_to_rgb_array(image));
+        return convert_image_to_screen(image, 0, 0);
     }
 
     public static ScreenData load_screen_from_file(String file_path) {
@@ -54,20 +81,25 @@ public class ScreenCapture {
     }
 
     public static ScreenData capture_screen() {
-        try {
-            Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
-            Rectangle screenRectangle = new Rectangle(screenSize);
-            Robot robot = new Robot();
-            BufferedImage image = robot.createScreenCapture(screenRectangle);
+        BufferedImage image = get_captured_screen();
+        if (image != null) {
             return convert_image_to_screen(image);
-        } catch (AWTException e) {
-            e.printStackTrace();
-            return null;
         }
+        return null;
+    }
+
+    public static ScreenData capture_screen(Rectangle rectangle) {
+        BufferedImage image = get_captured_screen(rectangle);
+        if (image != null) {
+            return convert_image_to_screen(image, rectangle.x, rectangle.y);
+        }
+        return null;
     }
 
     public static BufferedImage create_image_from_screen(ScreenData screen) {
-        return create_image_from_array(screen.rgb_array);
+        BufferedImage image = new BufferedImage(screen.width, screen.height, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, screen.width, screen.height, screen.pixels, screen.offset, screen.stride);
+        return image;
     }
 
     public static BufferedImage create_image_from_array(int rgb_array[][][]) {
@@ -115,11 +147,17 @@ public class ScreenCapture {
     }
 
     public static BufferedImage get_captured_screen() {
-        ScreenData screenRGB = capture_screen();
-        if (screenRGB != null) {
-            return create_image_from_screen(screenRGB);
+        Dimension screenSize = Toolkit.getDefaultToolkit().getScreenSize();
+        return get_captured_screen(new Rectangle(screenSize));
+    }
+
+    public static BufferedImage get_captured_screen(Rectangle rectangle) {
+        try {
+            return get_robot().createScreenCapture(rectangle);
+        } catch (AWTException e) {
+            e.printStackTrace();
+            return null;
         }
-        return null;
     }
 
     public static void main(String[] args) {
@@ -1,13 +1,41 @@
+// Pixels packed as 0xRRGGBB ints, the top byte ignored; pixel (x, y) is pixels[offset + y * stride + x] and
+// lies at (origin_x + x, origin_y + y) on the screen.
 public class ScreenData {
-    public int width;
-    public int height;
-    public int rgb_array[][][];
+    public final int width;
+    public final int height;
+    public final int[] pixels;
+    public final int offset;
+    public final int stride;
+    public final int origin_x;
+    public final int origin_y;
 
-    public ScreenData(int width, int height, int rgb_array[][][]) {
-        assert width > 0 && height > 0;
-        assert null != rgb_array && rgb_array.length == width && null != rgb_array[0] && rgb_array[0].length == height && rgb_array[0][0].length == 3;
+    public ScreenData(int width, int height, int[] pixels, int offset, int stride, int origin_x, int origin_y) {
+        assert width > 0 && height > 0 && stride >= width;
+        assert null != pixels && offset >= 0 && offset + (height - 1) * stride + width <= pixels.length;
         this.width = width;
         this.height = height;
-        this.rgb_array = rgb_array;
+        this.pixels = pixels;
+        this.offset = offset;
+        this.stride = stride;
+        this.origin_x = origin_x;
+        this.origin_y = origin_y;
     }
-}
\ No newline at end of file
+
+    public ScreenData(int width, int height, int[] pixels, int offset, int stride) {
+        this(width, height, pixels, offset, stride, 0, 0);
+    }
+
+    public ScreenData(int width, int height, int[] pixels) {
+        this(width, height, pixels, 0, width);
+    }
+
+    public int get_rgb(int x, int y) {
+        return pixels[offset + y * stride + x] & 0xffffff;
+    }
+
+    // A view of the pixels width_l <= x < width_r, height_l <= y < height_r, sharing this screen's array.
+    public ScreenData get_region(int width_l, int width_r, int height_l, int height_r) {
+        assert 0 <= width_l && width_l < width_r && width_r <= width && 0 <= height_l && height_l < height_r && height_r <= height;
+        return new ScreenData(width_r - width_l, height_r - height_l, pixels, offset + height_l * stride + width_l, stride, origin_x + width_l, origin_y + height_l);
+    }
+}
@@ -0,0 +1,132 @@
+import java.util.ArrayList;
+import java.util.HashSet;
+
+public class SearchBenchmark {
+    static final String[] names = {"empty", "process", "hard", "hard2", "hard3", "hard4", "almost_final", "final"};
+
+    static ArrayList<Pair<String, MinesweeperState>> load_boards() {
+        MinesweeperScanner minesweeperScanner = new MinesweeperScanner(30, 16);
+        ArrayList<Pair<String, MinesweeperState>> boards = new ArrayList<>();
+        for (String name : names) {
+            try {
+                boards.add(new Pair<>(name, minesweeperScanner.scan(ScreenCapture.load_screen_from_file("test_images/" + name + ".png"))));
+            } catch (IllegalMapException e) {
+                System.out.println(name + ": skipped, the board is invalid");
+            }
+        }
+        return boards;
+    }
+
+    // Local rules and caches are off so that every frontier cell goes through the search.
+    static void compare_variable_orderings(ArrayList<Pair<String, MinesweeperState>> boards) {
+        System.out.printf("%-14s", "board");
+        for (MinesweeperState.VariableOrdering ordering : MinesweeperState.VariableOrdering.values()) {
+            System.out.printf("%20s", ordering);
+        }
+        System.out.println();
+        long[] totals = new long[MinesweeperState.VariableOrdering.values().length];
+        for (Pair<String, MinesweeperState> board : boards) {
+            MinesweeperState state = board.getSecond();
+            state.set_local_rules(false);
+            state.set_pattern_caching(false);
+            state.set_decomposition_search(false);
+            System.out.printf("%-14s", board.getFirst());
+            HashSet<Pair<Pair<Integer, Integer>, Character>> expected = null;
+            for (MinesweeperState.VariableOrdering ordering : MinesweeperState.VariableOrdering.values()) {
+                state.set_variable_ordering(ordering);
+                ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = state.get_predictions();
+                HashSet<Pair<Pair<Integer, Integer>, Character>> actual = null == predictions ? null : new HashSet<>(predictions);
+                if (null == expected) {
+                    expected = actual;
+                } else if (null == actual ? null != expected : !actual.equals(expected)) {
+                    System.out.println();
+                    System.out.println(board.getFirst() + ": " + ordering + " disagrees with " + MinesweeperState.VariableOrdering.BFS);
+                }
+                long expanded_nodes = state.get_search_statistics().expanded_nodes();
+                totals[ordering.ordinal()] += expanded_nodes;
+                System.out.printf("%20d", expanded_nodes);
+            }
+            System.out.println();
+        }
+        System.out.printf("%-14s", "total");
+        for (long total : totals) {
+            System.out.printf("%20d", total);
+        }
+        System.out.println();
+    }
+
+    static void compare_decomposition_search(ArrayList<Pair<String, MinesweeperState>> boards) {
+        System.out.printf("%-14s%20s%20s%20s%20s%n", "board", "search nodes", "search ms", "decomposition nodes", "decomposition ms");
+        for (Pair<String, MinesweeperState> board : boards) {
+            MinesweeperState state = board.getSecond();
+            state.set_local_rules(false);
+            state.set_pattern_caching(false);
+            state.set_variable_ordering(MinesweeperState.VariableOrdering.BFS);
+            System.out.printf("%-14s", board.getFirst());
+            HashSet<Pair<Pair<Integer, Integer>, Character>> expected = null;
+            for (boolean decomposition_search : new boolean[]{false, true}) {
+                state.set_decomposition_search(decomposition_search);
+                long start_time = System.nanoTime();
+                ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = state.get_predictions();
+                long time = (System.nanoTime() - start_time) / 1000000;
+                HashSet<Pair<Pair<Integer, Integer>, Character>> actual = null == predictions ? null : new HashSet<>(predictions);
+                if (decomposition_search && (null == actual ? null != expected : !actual.equals(expected))) {
+                    System.out.println();
+                    System.out.println(board.getFirst() + ": the decomposition disagrees with the search");
+                }
+                expected = actual;
+                System.out.printf("%20d%20d", state.get_search_statistics().expanded_nodes(), time);
+            }
+            System.out.println();
+        }
+    }
+
+    // Best of five runs per engine, with the decomposition off so that every block is backtracked.
+    static void compare_search_engines(ArrayList<Pair<String, MinesweeperState>> boards) {
+        System.out.printf("%-14s%20s", "board", "nodes");
+        for (MinesweeperState.SearchEngine engine : MinesweeperState.SearchEngine.values()) {
+            System.out.printf("%20s", engine + " us");
+        }
+        System.out.println();
+        for (Pair<String, MinesweeperState> board : boards) {
+            MinesweeperState state = board.getSecond();
+            state.set_local_rules(false);
+            state.set_pattern_caching(false);
+            state.set_decomposition_search(false);
+            state.set_variable_ordering(MinesweeperState.VariableOrdering.BFS);
+            System.out.printf("%-14s", board.getFirst());
+            HashSet<Pair<Pair<Integer, Integer>, Character>> expected = null;
+            long[] times = new long[MinesweeperState.SearchEngine.values().length];
+            for (MinesweeperState.SearchEngine engine : MinesweeperState.SearchEngine.values()) {
+                state.set_search_engine(engine);
+                long best_time = Long.MAX_VALUE;
+                ArrayList<Pair<Pair<Integer, Integer>, Character>> predictions = null;
+                for (int run = 0; run < 5; ++run) {
+                    long start_time = System.nanoTime();
+                    predictions = state.get_predictions();
+                    best_time = Math.min(best_time, System.nanoTime() - start_time);
+                }
+                times[engine.ordinal()] = best_time / 1000;
+                HashSet<Pair<Pair<Integer, Integer>, Character>> actual = null == predictions ? null : new HashSet<>(predictions);
+                if (null == expected) {
+                    expected = actual;
+                } else if (null == actual ? null != expected : !actual.equals(expected)) {
+                    System.out.println();
+                    System.out.println(board.getFirst() + ": " + engine + " disagrees with " + MinesweeperState.SearchEngine.BOARD_SCAN);
+                }
+            }
+            System.out.printf("%20d", state.get_search_statistics().expanded_nodes());
+            for (long time : times) {
+                System.out.printf("%20d", time);
+            }
+            System.out.println();
+        }
+    }
+
+    public static void main(String[] args) {
+        ArrayList<Pair<String, MinesweeperState>> boards = load_boards();
+        compare_variable_orderings(boards);
+        compare_decomposition_search(boards);
+        compare_search_engines(boards);
+    }
+}
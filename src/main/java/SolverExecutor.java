@@ -0,0 +1,44 @@
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+public class SolverExecutor {
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "solver");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile CancellationToken current_token;
+    private volatile Future<?> current_job;
+
+    public synchronized CancellationToken submit(Consumer<CancellationToken> job, Runnable on_finish) {
+        CancellationToken token = new CancellationToken();
+        current_token = token;
+        current_job = executor.submit(() -> {
+            try {
+                job.accept(token);
+            } finally {
+                on_finish.run();
+            }
+        });
+        return token;
+    }
+
+    // The token is the cancellation signal; interrupting as well wakes up a job sleeping between autoplay clicks.
+    // Jobs treat an interrupt like a cancelled token, and code that catches InterruptedException re-asserts it
+    // before returning so that the rest of the job sees it too.
+    public synchronized void cancel() {
+        if (null != current_token) {
+            current_token.cancel();
+        }
+        if (null != current_job) {
+            current_job.cancel(true);
+        }
+    }
+
+    public boolean is_running() {
+        Future<?> job = current_job;
+        return null != job && !job.isDone();
+    }
+}